@@ -0,0 +1,114 @@
+package game2048;
+
+// Lets an advisor play whole games without a display, as fast as the engine goes, for
+// strength regression checks and throughput measurements. Game i is seeded with seed + i,
+// so runs are reproducible.
+// Usage: java game2048.AutoPlay [advisor] [games] [seed] [depth]
+// The advisor is expectimax (the default), timed, timed-sampled, suggestion, rollout or
+// greedy-rollout. Depth only applies to expectimax; timed and timed-sampled search for the
+// game's 150 ms budget without / with chance sampling.
+public class AutoPlay {
+    // Outcome of one game
+    public static class GameResult {
+        public int score;
+        public int moves;
+        public int highestExponent;
+        public boolean won;
+
+        public GameResult(int score, int moves, int highestExponent, boolean won) {
+            this.score = score;
+            this.moves = moves;
+            this.highestExponent = highestExponent;
+            this.won = won;
+        }
+    }
+
+    // Totals over a run of games
+    public static class Stats {
+        public int games;
+        public long moves;
+        public long totalScore;
+        public int wins;
+        public long nanos;
+
+        // Games per highest tile reached, indexed by exponent
+        public int[] highestTileCounts = new int[MoveTable.MAX_EXPONENT + 1];
+
+        public void add(GameResult result) {
+            games++;
+            moves += result.moves;
+            totalScore += result.score;
+            highestTileCounts[result.highestExponent]++;
+            if (result.won) {
+                wins++;
+            }
+        }
+
+        public double getGamesPerSecond() {
+            return nanos == 0 ? 0 : games / (nanos / 1e9);
+        }
+
+        public double getMovesPerSecond() {
+            return nanos == 0 ? 0 : moves / (nanos / 1e9);
+        }
+
+        public double getWinRate() {
+            return games == 0 ? 0 : (double) wins / games;
+        }
+
+        public double getAverageScore() {
+            return games == 0 ? 0 : (double) totalScore / games;
+        }
+    }
+
+    public static void main(String[] args) {
+        String advisorName = args.length > 0 ? args[0] : "expectimax";
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+        int depth = args.length > 3 ? Integer.parseInt(args[3]) : ImprovedExpectimax.SEARCH_DEPTH;
+
+        MoveAdvisor advisor = MoveAdvisor.byName(advisorName, depth);
+        Stats stats = play(advisor, games, seed);
+
+        System.out.printf("%s: %d games, %d moves in %.1f s%n", advisor.getName(), stats.games, stats.moves, stats.nanos / 1e9);
+        System.out.printf("%.2f games/s, %.0f moves/s%n", stats.getGamesPerSecond(), stats.getMovesPerSecond());
+        System.out.printf("average score %.0f, 2048 win rate %.1f%%%n", stats.getAverageScore(), stats.getWinRate() * 100);
+        System.out.println("highest tile:");
+        for (int exponent = 1; exponent < stats.highestTileCounts.length; exponent++) {
+            int count = stats.highestTileCounts[exponent];
+            if (count > 0) {
+                System.out.printf("%7d  %5d games  %5.1f%%%n", 1 << exponent, count, 100.0 * count / stats.games);
+            }
+        }
+    }
+
+    public static Stats play(MoveAdvisor advisor, int games, long seed) {
+        Stats stats = new Stats();
+        long start = System.nanoTime();
+        for (int i = 0; i < games; i++) {
+            stats.add(playGame(advisor, seed + i));
+        }
+        stats.nanos = System.nanoTime() - start;
+        return stats;
+    }
+
+    // Plays one seeded game on the standard board until no move is left. Unlike
+    // GameSession it keeps going after 2048, so the highest tile shows how far play gets.
+    public static GameResult playGame(MoveAdvisor advisor, long seed) {
+        Board board = new Board(GameSession.BOARD_SIZE, new RandomSpawnSource(seed));
+        board.addRandomTile();
+        board.addRandomTile();
+
+        int moves = 0;
+        while (true) {
+            int direction = advisor.chooseMove(board);
+            if (direction < 0 || !board.move(direction)) {
+                break;
+            }
+            board.addRandomTile();
+            moves++;
+        }
+
+        return new GameResult(board.getScore(), moves, board.getHighestExponent(), board.hasWon());
+    }
+}
@@ -7,66 +7,200 @@ public class Board {
     public static final int DOWN = 1;
     public static final int LEFT = 2;
     public static final int RIGHT = 3;
-    
+
+    public static final int MAX_SIZE = 5;
+
+    // Bitboard layout: every cell holds the low 4 bits of its exponent (0 = empty, 1 = 2,
+    // 2 = 4, ...), a row is 5 cells (20 bits) with column 0 in the lowest bits,
+    // rows 0-2 live in lo and rows 3-4 live in hi. The fifth exponent bit, only set for
+    // tiles of 65536 and up, lives in upper at bit row * 5 + col.
+    private static final int CELL_BITS = MoveTable.CELL_BITS;
+    private static final int CELL_MASK = MoveTable.CELL_MASK;
+    private static final int ROW_BITS = MoveTable.LINE_BITS;
+    private static final int ROW_MASK = MoveTable.LINE_MASK;
+    private static final int ROWS_IN_LO = 3;
+    private static final int UPPER_ROW_MASK = (1 << MAX_SIZE) - 1;
+
+    // packedLo/packedHi carry upper in the bits the rows leave free: its first 24 bits above
+    // rows 3-4 in hi, its last bit above rows 0-2 in lo
+    private static final int LO_FREE_SHIFT = ROWS_IN_LO * ROW_BITS;
+    private static final int HI_FREE_SHIFT = (MAX_SIZE - ROWS_IN_LO) * ROW_BITS;
+    private static final int UPPER_BITS_IN_HI = Long.SIZE - HI_FREE_SHIFT;
+    private static final long LO_CELLS_MASK = (1L << LO_FREE_SHIFT) - 1;
+    private static final long HI_CELLS_MASK = (1L << HI_FREE_SHIFT) - 1;
+
+    private static final int MAX_EXPONENT = MoveTable.MAX_EXPONENT;
+    private static final int WIN_EXPONENT = 11;
+
+    // Lowest bit of every 4-bit cell in a word
+    private static final long LOW_CELL_BITS = 0x1111111111111111L;
+
+    // Pair masks for getLegalMoves, indexed by board size. A set bit marks the first cell of
+    // two neighbours; MID pairs row 2 (top of lo) with row 3 (bottom of hi).
+    private static final long[] HORIZONTAL_PAIRS_LO = new long[MAX_SIZE + 1];
+    private static final long[] HORIZONTAL_PAIRS_HI = new long[MAX_SIZE + 1];
+    private static final long[] VERTICAL_PAIRS_LO = new long[MAX_SIZE + 1];
+    private static final long[] VERTICAL_PAIRS_HI = new long[MAX_SIZE + 1];
+    private static final long[] VERTICAL_PAIRS_MID = new long[MAX_SIZE + 1];
+
+    // Lowest bit of every cell that is on the board, indexed by board size
+    private static final long[] CELLS_LO = new long[MAX_SIZE + 1];
+    private static final long[] CELLS_HI = new long[MAX_SIZE + 1];
+
+    static {
+        for (int size = 1; size <= MAX_SIZE; size++) {
+            for (int row = 0; row < size; row++) {
+                boolean inLo = row < ROWS_IN_LO;
+                for (int col = 0; col < size; col++) {
+                    long cell = 1L << ((row % ROWS_IN_LO) * ROW_BITS + col * CELL_BITS);
+                    if (inLo) {
+                        CELLS_LO[size] |= cell;
+                    } else {
+                        CELLS_HI[size] |= cell;
+                    }
+                    if (col < size - 1) {
+                        if (inLo) {
+                            HORIZONTAL_PAIRS_LO[size] |= cell;
+                        } else {
+                            HORIZONTAL_PAIRS_HI[size] |= cell;
+                        }
+                    }
+                    if (row < size - 1) {
+                        if (row == ROWS_IN_LO - 1) {
+                            VERTICAL_PAIRS_MID[size] |= 1L << (col * CELL_BITS);
+                        } else if (inLo) {
+                            VERTICAL_PAIRS_LO[size] |= cell;
+                        } else {
+                            VERTICAL_PAIRS_HI[size] |= cell;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // Tile-count histogram: a 5-bit count per exponent, exponents 1-12 in countsLo, 13-24 in
+    // countsHi and 25-30 in countsTop
+    private static final int COUNT_BITS = 5;
+    private static final int COUNT_MASK = 0x1F;
+    private static final int COUNTS_PER_WORD = 12;
+
+    // Each undo frame holds lo, hi, the packed score/highest exponent/won flag, the first two
+    // histogram words, and upper packed with countsTop
+    private static final int UNDO_FRAME_SIZE = 6;
+    private static final int COUNTS_TOP_SHIFT = 32;
+    private static final int INITIAL_UNDO_FRAMES = 16;
+
     private int size;
-    private Tile[][] grid;
+    private long lo;
+    private long hi;
+    private int upper;
     private int score;
     private boolean hasWon;
-    
+    private int highestExponent;
+    private long countsLo;
+    private long countsHi;
+    private long countsTop;
+    private SpawnSource spawnSource;
+    private long[] undoStack;
+    private int undoTop;
+
     public Board(int size) {
+        this(size, new RandomSpawnSource());
+    }
+
+    public Board(int size, SpawnSource spawnSource) {
+        if (size < 1 || size > MAX_SIZE) {
+            throw new IllegalArgumentException("Board size must be between 1 and " + MAX_SIZE + ": " + size);
+        }
         this.size = size;
-        this.grid = new Tile[size][size];
+        this.lo = 0;
+        this.hi = 0;
         this.score = 0;
         this.hasWon = false;
+        this.spawnSource = spawnSource;
+    }
+
+    private Board(Board other) {
+        this.size = other.size;
+        this.lo = other.lo;
+        this.hi = other.hi;
+        this.upper = other.upper;
+        this.score = other.score;
+        this.hasWon = other.hasWon;
+        this.highestExponent = other.highestExponent;
+        this.countsLo = other.countsLo;
+        this.countsHi = other.countsHi;
+        this.countsTop = other.countsTop;
+        this.spawnSource = other.spawnSource;
     }
-    
+
     public int getSize() {
         return size;
     }
-    
+
     public Tile getTile(int row, int col) {
         if (row >= 0 && row < size && col >= 0 && col < size) {
-            return grid[row][col];
+            int exponent = getExponent(row, col);
+            return exponent == 0 ? null : Tile.fromExponent(exponent);
         }
         return null;
     }
-    
+
     public void setTile(int row, int col, Tile tile) {
         if (row >= 0 && row < size && col >= 0 && col < size) {
-            grid[row][col] = tile;
+            setExponent(row, col, tile == null ? 0 : checkExponent(tile.getExponent()));
         }
     }
-    
+
+    // Exponent of the tile at (row, col), 0 when the cell is empty
+    public int getExponent(int row, int col) {
+        return MoveTable.exponent(getRow(row), col);
+    }
+
     public int getScore() {
         return score;
     }
-    
+
     public boolean hasWon() {
         return hasWon;
     }
-    
+
+    public SpawnSource getSpawnSource() {
+        return spawnSource;
+    }
+
+    // Copies share their spawn source, give a copy its own source before spawning on another thread
+    public void setSpawnSource(SpawnSource spawnSource) {
+        this.spawnSource = spawnSource;
+    }
+
     public void addRandomTile() {
-        List<int[]> emptyCells = new ArrayList<>();
-        
-        for (int row = 0; row < size; row++) {
-            for (int col = 0; col < size; col++) {
-                if (grid[row][col] == null) {
-                    emptyCells.add(new int[]{row, col});
-                }
+        long emptyLo = emptyCells(lo, CELLS_LO[size]) & ~upperCells(0, ROWS_IN_LO);
+        long emptyHi = emptyCells(hi, CELLS_HI[size]) & ~upperCells(ROWS_IN_LO, MAX_SIZE);
+        int emptyCount = Long.bitCount(emptyLo) + Long.bitCount(emptyHi);
+
+        if (emptyCount > 0) {
+            int pick = spawnSource.nextCell(emptyCount);
+            int exponent = spawnSource.nextExponent();
+
+            // Walk to the pick-th set bit of the empty-cell masks
+            int countLo = Long.bitCount(emptyLo);
+            long cells = pick < countLo ? emptyLo : emptyHi;
+            for (int i = pick < countLo ? pick : pick - countLo; i > 0; i--) {
+                cells &= cells - 1;
             }
-        }
-        
-        if (!emptyCells.isEmpty()) {
-            int[] cell = emptyCells.get((int)(Math.random() * emptyCells.size()));
-            int value = Math.random() < 0.9 ? 2 : 4;
-            grid[cell[0]][cell[1]] = new Tile(value);
+
+            int bit = Long.numberOfTrailingZeros(cells);
+            int row = bit / ROW_BITS + (pick < countLo ? 0 : ROWS_IN_LO);
+            int col = (bit % ROW_BITS) / CELL_BITS;
+            setExponent(row, col, exponent);
         }
     }
-    
+
     public boolean move(int direction) {
         boolean moved = false;
-        resetMergedFlags();
-        
+
         switch (direction) {
             case UP:
                 moved = moveUp();
@@ -81,240 +215,447 @@ public class Board {
                 moved = moveRight();
                 break;
         }
-        
+
         return moved;
     }
-    
-    private void resetMergedFlags() {
-        for (int row = 0; row < size; row++) {
-            for (int col = 0; col < size; col++) {
-                if (grid[row][col] != null) {
-                    grid[row][col].resetMerged();
-                }
-            }
+
+    // Makes a move in place for search, undoMove() restores the board it started from.
+    // Only moves that change the board are recorded.
+    public boolean applyMove(int direction) {
+        long savedLo = lo;
+        long savedHi = hi;
+        long savedCountsLo = countsLo;
+        long savedCountsHi = countsHi;
+        long savedUpper = (countsTop << COUNTS_TOP_SHIFT) | (upper & 0xFFFFFFFFL);
+        long savedScore = ((long) score << 6) | (highestExponent << 1) | (hasWon ? 1 : 0);
+
+        if (!move(direction)) {
+            return false;
+        }
+
+        if (undoStack == null) {
+            undoStack = new long[INITIAL_UNDO_FRAMES * UNDO_FRAME_SIZE];
+        } else if (undoTop == undoStack.length) {
+            undoStack = Arrays.copyOf(undoStack, undoStack.length * 2);
+        }
+
+        undoStack[undoTop] = savedLo;
+        undoStack[undoTop + 1] = savedHi;
+        undoStack[undoTop + 2] = savedScore;
+        undoStack[undoTop + 3] = savedCountsLo;
+        undoStack[undoTop + 4] = savedCountsHi;
+        undoStack[undoTop + 5] = savedUpper;
+        undoTop += UNDO_FRAME_SIZE;
+        return true;
+    }
+
+    public void undoMove() {
+        if (undoTop == 0) {
+            throw new IllegalStateException("No move to undo");
+        }
+
+        undoTop -= UNDO_FRAME_SIZE;
+        lo = undoStack[undoTop];
+        hi = undoStack[undoTop + 1];
+        score = (int) (undoStack[undoTop + 2] >>> 6);
+        highestExponent = (int) (undoStack[undoTop + 2] >>> 1) & COUNT_MASK;
+        hasWon = (undoStack[undoTop + 2] & 1) != 0;
+        countsLo = undoStack[undoTop + 3];
+        countsHi = undoStack[undoTop + 4];
+        upper = (int) undoStack[undoTop + 5];
+        countsTop = undoStack[undoTop + 5] >>> COUNTS_TOP_SHIFT;
+    }
+
+    // Puts a tile with the given exponent (1 = 2, 2 = 4, ...) without allocating a Tile
+    public void placeTile(int row, int col, int exponent) {
+        if (exponent < 1 || exponent > MAX_EXPONENT) {
+            throw new IllegalArgumentException("Tile exponent must be between 1 and " + MAX_EXPONENT + ": " + exponent);
+        }
+        if (row >= 0 && row < size && col >= 0 && col < size) {
+            setExponent(row, col, exponent);
         }
     }
-    
+
+    public void removeTile(int row, int col) {
+        if (row >= 0 && row < size && col >= 0 && col < size) {
+            setExponent(row, col, 0);
+        }
+    }
+
     private boolean moveUp() {
         boolean moved = false;
-        
+
         for (int col = 0; col < size; col++) {
-            int writePos = 0;
-            
-            for (int row = 0; row < size; row++) {
-                if (grid[row][col] != null) {
-                    Tile current = grid[row][col];
-                    
-                    if (writePos > 0 && grid[writePos - 1][col] != null && 
-                        grid[writePos - 1][col].getValue() == current.getValue() && 
-                        !grid[writePos - 1][col].isMerged()) {
-                        
-                        grid[writePos - 1][col].doubleValue();
-                        grid[writePos - 1][col].setMerged(true);
-                        score += grid[writePos - 1][col].getValue();
-                        
-                        if (grid[writePos - 1][col].getValue() == 2048) {
-                            hasWon = true;
-                        }
-                        
-                        grid[row][col] = null;
-                        moved = true;
-                    } else {
-                        if (row != writePos) {
-                            grid[writePos][col] = current;
-                            grid[row][col] = null;
-                            moved = true;
-                        }
-                        writePos++;
-                    }
-                }
+            int line = getColumn(col);
+            int result = slideLine(line);
+            if (result != line) {
+                setColumn(col, result);
+                moved = true;
             }
         }
-        
+
         return moved;
     }
-    
+
     private boolean moveDown() {
         boolean moved = false;
-        
+
         for (int col = 0; col < size; col++) {
-            int writePos = size - 1;
-            
-            for (int row = size - 1; row >= 0; row--) {
-                if (grid[row][col] != null) {
-                    Tile current = grid[row][col];
-                    
-                    if (writePos < size - 1 && grid[writePos + 1][col] != null && 
-                        grid[writePos + 1][col].getValue() == current.getValue() && 
-                        !grid[writePos + 1][col].isMerged()) {
-                        
-                        grid[writePos + 1][col].doubleValue();
-                        grid[writePos + 1][col].setMerged(true);
-                        score += grid[writePos + 1][col].getValue();
-                        
-                        if (grid[writePos + 1][col].getValue() == 2048) {
-                            hasWon = true;
-                        }
-                        
-                        grid[row][col] = null;
-                        moved = true;
-                    } else {
-                        if (row != writePos) {
-                            grid[writePos][col] = current;
-                            grid[row][col] = null;
-                            moved = true;
-                        }
-                        writePos--;
-                    }
-                }
+            int line = reverseLine(getColumn(col));
+            int result = slideLine(line);
+            if (result != line) {
+                setColumn(col, reverseLine(result));
+                moved = true;
             }
         }
-        
+
         return moved;
     }
-    
+
     private boolean moveLeft() {
         boolean moved = false;
-        
+
         for (int row = 0; row < size; row++) {
-            int writePos = 0;
-            
-            for (int col = 0; col < size; col++) {
-                if (grid[row][col] != null) {
-                    Tile current = grid[row][col];
-                    
-                    if (writePos > 0 && grid[row][writePos - 1] != null && 
-                        grid[row][writePos - 1].getValue() == current.getValue() && 
-                        !grid[row][writePos - 1].isMerged()) {
-                        
-                        grid[row][writePos - 1].doubleValue();
-                        grid[row][writePos - 1].setMerged(true);
-                        score += grid[row][writePos - 1].getValue();
-                        
-                        if (grid[row][writePos - 1].getValue() == 2048) {
-                            hasWon = true;
-                        }
-                        
-                        grid[row][col] = null;
-                        moved = true;
-                    } else {
-                        if (col != writePos) {
-                            grid[row][writePos] = current;
-                            grid[row][col] = null;
-                            moved = true;
-                        }
-                        writePos++;
-                    }
-                }
+            int line = getRow(row);
+            int result = slideLine(line);
+            if (result != line) {
+                setRow(row, result);
+                moved = true;
             }
         }
-        
+
         return moved;
     }
-    
+
     private boolean moveRight() {
         boolean moved = false;
-        
+
         for (int row = 0; row < size; row++) {
-            int writePos = size - 1;
-            
-            for (int col = size - 1; col >= 0; col--) {
-                if (grid[row][col] != null) {
-                    Tile current = grid[row][col];
-                    
-                    if (writePos < size - 1 && grid[row][writePos + 1] != null && 
-                        grid[row][writePos + 1].getValue() == current.getValue() && 
-                        !grid[row][writePos + 1].isMerged()) {
-                        
-                        grid[row][writePos + 1].doubleValue();
-                        grid[row][writePos + 1].setMerged(true);
-                        score += grid[row][writePos + 1].getValue();
-                        
-                        if (grid[row][writePos + 1].getValue() == 2048) {
-                            hasWon = true;
-                        }
-                        
-                        grid[row][col] = null;
-                        moved = true;
-                    } else {
-                        if (col != writePos) {
-                            grid[row][writePos] = current;
-                            grid[row][col] = null;
-                            moved = true;
-                        }
-                        writePos--;
-                    }
-                }
+            int line = reverseLine(getRow(row));
+            int result = slideLine(line);
+            if (result != line) {
+                setRow(row, reverseLine(result));
+                moved = true;
             }
         }
-        
+
         return moved;
     }
-    
+
+    // Slides one packed line towards cell 0 and applies its score. Lines below 32768 go
+    // through the lookup table, bigger tiles cell by cell.
+    private int slideLine(int line) {
+        if (!MoveTable.inTable(line)) {
+            long entry = MoveTable.slideWide(line);
+            applyMerge(MoveTable.wideFirstMerge(entry));
+            applyMerge(MoveTable.wideSecondMerge(entry));
+            return MoveTable.wideResultLine(entry);
+        }
+
+        int entry = MoveTable.slideLeft(line);
+        score += MoveTable.scoreGained(entry);
+        recordMerge(MoveTable.firstMerge(entry));
+        recordMerge(MoveTable.secondMerge(entry));
+
+        if (MoveTable.createsExponent(entry, WIN_EXPONENT)) {
+            hasWon = true;
+        }
+
+        return MoveTable.resultLine(entry);
+    }
+
+    private void applyMerge(int exponent) {
+        if (exponent != 0) {
+            score += 1 << exponent;
+            recordMerge(exponent);
+            if (exponent == WIN_EXPONENT) {
+                hasWon = true;
+            }
+        }
+    }
+
+    // Two tiles of exponent - 1 became one tile of exponent
+    private void recordMerge(int exponent) {
+        if (exponent != 0) {
+            adjustTileCount(exponent - 1, -2);
+            adjustTileCount(exponent, 1);
+            highestExponent = Math.max(highestExponent, exponent);
+        }
+    }
+
+    private void adjustTileCount(int exponent, int delta) {
+        int shift = ((exponent - 1) % COUNTS_PER_WORD) * COUNT_BITS;
+        if (exponent <= COUNTS_PER_WORD) {
+            countsLo += (long) delta << shift;
+        } else if (exponent <= 2 * COUNTS_PER_WORD) {
+            countsHi += (long) delta << shift;
+        } else {
+            countsTop += (long) delta << shift;
+        }
+    }
+
+    private int reverseLine(int line) {
+        return MoveTable.reverse(line, size);
+    }
+
+    // A row as a MoveTable line, with the fifth exponent bits in bits 20-24
+    private int getRow(int row) {
+        int fifthBits = ((upper >>> (row * MAX_SIZE)) & UPPER_ROW_MASK) << ROW_BITS;
+        if (row < ROWS_IN_LO) {
+            return (int) (lo >>> (row * ROW_BITS)) & ROW_MASK | fifthBits;
+        }
+        return (int) (hi >>> ((row - ROWS_IN_LO) * ROW_BITS)) & ROW_MASK | fifthBits;
+    }
+
+    private void setRow(int row, int line) {
+        int upperShift = row * MAX_SIZE;
+        upper = (upper & ~(UPPER_ROW_MASK << upperShift)) | (line >>> ROW_BITS) << upperShift;
+        line &= ROW_MASK;
+        if (row < ROWS_IN_LO) {
+            int shift = row * ROW_BITS;
+            lo = (lo & ~((long) ROW_MASK << shift)) | ((long) line << shift);
+        } else {
+            int shift = (row - ROWS_IN_LO) * ROW_BITS;
+            hi = (hi & ~((long) ROW_MASK << shift)) | ((long) line << shift);
+        }
+    }
+
+    // Rows past the board size are always empty, so all five rows can be gathered
+    private int getColumn(int col) {
+        int shift = col * CELL_BITS;
+        long fromLo = lo >>> shift;
+        long fromHi = hi >>> shift;
+        int line = (int) ((fromLo & CELL_MASK)
+                | ((fromLo >>> ROW_BITS) & CELL_MASK) << CELL_BITS
+                | ((fromLo >>> (2 * ROW_BITS)) & CELL_MASK) << (2 * CELL_BITS)
+                | (fromHi & CELL_MASK) << (3 * CELL_BITS)
+                | ((fromHi >>> ROW_BITS) & CELL_MASK) << (4 * CELL_BITS));
+
+        if (upper != 0) {
+            for (int row = 0; row < MAX_SIZE; row++) {
+                line |= ((upper >>> (row * MAX_SIZE + col)) & 1) << (ROW_BITS + row);
+            }
+        }
+        return line;
+    }
+
+    private void setColumn(int col, int line) {
+        for (int row = 0; row < size; row++) {
+            writeCell(row, col, MoveTable.exponent(line, row));
+        }
+    }
+
+    // Changes one cell and keeps the tile statistics in step
+    private void setExponent(int row, int col, int exponent) {
+        int previous = getExponent(row, col);
+        if (previous == exponent) {
+            return;
+        }
+
+        writeCell(row, col, exponent);
+
+        if (exponent != 0) {
+            adjustTileCount(exponent, 1);
+            highestExponent = Math.max(highestExponent, exponent);
+        }
+        if (previous != 0) {
+            adjustTileCount(previous, -1);
+            while (highestExponent > 0 && getTileCount(highestExponent) == 0) {
+                highestExponent--;
+            }
+        }
+    }
+
+    private void writeCell(int row, int col, int exponent) {
+        setRow(row, MoveTable.withExponent(getRow(row), col, exponent));
+    }
+
+    private static int checkExponent(int exponent) {
+        if (exponent > MAX_EXPONENT) {
+            throw new IllegalArgumentException("Tile value must be at most " + (1 << MAX_EXPONENT) + ": " + (1 << exponent));
+        }
+        return exponent;
+    }
+
+    // An empty board has no legal moves either, but nothing has been played on it yet
     public boolean isGameOver() {
+        return getLegalMoves() == 0 && ((lo | hi) != 0 || upper != 0);
+    }
+
+    public boolean canMove(int direction) {
+        return (getLegalMoves() & (1 << direction)) != 0;
+    }
+
+    // Bitmask of the directions that would change the board, bit (1 << direction) per direction.
+    // Works on whole words at once: every pair of neighbouring cells is lined up by a shift and
+    // checked for a tile next to an empty cell or two equal tiles. Boards with a tile of 65536
+    // or more are checked cell by cell.
+    public int getLegalMoves() {
+        if (upper != 0) {
+            return legalMovesByCell();
+        }
+
+        int legalMoves = 0;
+        legalMoves |= pairMoves(lo, lo >>> CELL_BITS, HORIZONTAL_PAIRS_LO[size], LEFT, RIGHT);
+        legalMoves |= pairMoves(hi, hi >>> CELL_BITS, HORIZONTAL_PAIRS_HI[size], LEFT, RIGHT);
+        legalMoves |= pairMoves(lo, lo >>> ROW_BITS, VERTICAL_PAIRS_LO[size], UP, DOWN);
+        legalMoves |= pairMoves(hi, hi >>> ROW_BITS, VERTICAL_PAIRS_HI[size], UP, DOWN);
+        legalMoves |= pairMoves(lo >>> (ROWS_IN_LO - 1) * ROW_BITS, hi, VERTICAL_PAIRS_MID[size], UP, DOWN);
+        return legalMoves;
+    }
+
+    private static int pairMoves(long first, long second, long pairs, int towardFirst, int towardSecond) {
+        long firstTiles = nonEmptyCells(first);
+        long secondTiles = nonEmptyCells(second);
+        int legalMoves = 0;
+
+        if ((~firstTiles & secondTiles & pairs) != 0) {
+            legalMoves |= 1 << towardFirst;
+        }
+        if ((firstTiles & ~secondTiles & pairs) != 0) {
+            legalMoves |= 1 << towardSecond;
+        }
+
+        long mergeable = firstTiles & ~nonEmptyCells(first ^ second) & pairs;
+        if (mergeable != 0) {
+            legalMoves |= (1 << towardFirst) | (1 << towardSecond);
+        }
+
+        return legalMoves;
+    }
+
+    private int legalMovesByCell() {
+        int legalMoves = 0;
         for (int row = 0; row < size; row++) {
             for (int col = 0; col < size; col++) {
-                if (grid[row][col] == null) {
-                    return false;
-                }
-                
-                if (col < size - 1 && grid[row][col + 1] != null && 
-                    grid[row][col].getValue() == grid[row][col + 1].getValue()) {
-                    return false;
+                int exponent = getExponent(row, col);
+                if (col < size - 1) {
+                    legalMoves |= pairMoves(exponent, getExponent(row, col + 1), LEFT, RIGHT);
                 }
-                
-                if (row < size - 1 && grid[row + 1][col] != null && 
-                    grid[row][col].getValue() == grid[row + 1][col].getValue()) {
-                    return false;
+                if (row < size - 1) {
+                    legalMoves |= pairMoves(exponent, getExponent(row + 1, col), UP, DOWN);
                 }
             }
         }
-        
-        return true;
+        return legalMoves;
     }
-    
-    public boolean canMove(int direction) {
-        Board testBoard = this.copy();
-        return testBoard.move(direction);
+
+    private static int pairMoves(int first, int second, int towardFirst, int towardSecond) {
+        if (first == 0 && second == 0) {
+            return 0;
+        }
+        if (first == 0) {
+            return 1 << towardFirst;
+        }
+        if (second == 0) {
+            return 1 << towardSecond;
+        }
+        return first == second && first < MAX_EXPONENT ? (1 << towardFirst) | (1 << towardSecond) : 0;
+    }
+
+    // Lowest bit of every non-zero 4-bit cell
+    private static long nonEmptyCells(long word) {
+        return (word | (word >>> 1) | (word >>> 2) | (word >>> 3)) & LOW_CELL_BITS;
     }
-    
+
+    // Lowest bit of every empty cell among the given on-board cells
+    private static long emptyCells(long word, long cells) {
+        return ~nonEmptyCells(word) & cells;
+    }
+
+    // Lowest bit of every cell in rows [from, to) whose fifth exponent bit is set; such a
+    // cell is taken even when its low four bits are zero
+    private long upperCells(int from, int to) {
+        long cells = 0;
+        for (int bits = upper; bits != 0; bits &= bits - 1) {
+            int bit = Integer.numberOfTrailingZeros(bits);
+            int row = bit / MAX_SIZE;
+            if (row >= from && row < to) {
+                cells |= 1L << ((row - from) * ROW_BITS + (bit % MAX_SIZE) * CELL_BITS);
+            }
+        }
+        return cells;
+    }
+
     public Board copy() {
-        Board copy = new Board(this.size);
-        copy.score = this.score;
-        copy.hasWon = this.hasWon;
-        
+        return new Board(this);
+    }
+
+    // Packed grid words, rows 0-2 and rows 3-4 with the fifth exponent bits in their free
+    // top bits. Together they describe the grid exactly, for compact storage and hashing.
+    long packedLo() {
+        return packLo(lo, upper);
+    }
+
+    long packedHi() {
+        return packHi(hi, upper);
+    }
+
+    // Builds packed words from the 4-bit cell words and the fifth bits, see packedLo/packedHi
+    static long packLo(long lo, int upper) {
+        return lo | (long) (upper >>> UPPER_BITS_IN_HI) << LO_FREE_SHIFT;
+    }
+
+    static long packHi(long hi, int upper) {
+        return hi | (upper & 0xFFFFFFFFL) << HI_FREE_SHIFT;
+    }
+
+    // Packed exponents of one row or column, cell 0 in the low bits, for the lookup tables
+    int rowLine(int row) {
+        return getRow(row);
+    }
+
+    int columnLine(int col) {
+        return getColumn(col);
+    }
+
+    // Rebuilds a board from packedLo()/packedHi() and recomputes its tile statistics
+    static Board fromPacked(int size, long lo, long hi, int score, boolean hasWon, SpawnSource spawnSource) {
+        Board board = new Board(size, spawnSource);
+        board.lo = lo & LO_CELLS_MASK;
+        board.hi = hi & HI_CELLS_MASK;
+        board.upper = (int) (hi >>> HI_FREE_SHIFT) | (int) (lo >>> LO_FREE_SHIFT) << UPPER_BITS_IN_HI;
+        board.score = score;
+        board.hasWon = hasWon;
+
         for (int row = 0; row < size; row++) {
             for (int col = 0; col < size; col++) {
-                if (this.grid[row][col] != null) {
-                    copy.grid[row][col] = this.grid[row][col].copy();
+                int exponent = board.getExponent(row, col);
+                if (exponent != 0) {
+                    board.adjustTileCount(exponent, 1);
+                    board.highestExponent = Math.max(board.highestExponent, exponent);
                 }
             }
         }
-        
-        return copy;
+
+        return board;
     }
-    
+
     public int getHighestTile() {
-        int highest = 0;
-        for (int row = 0; row < size; row++) {
-            for (int col = 0; col < size; col++) {
-                if (grid[row][col] != null && grid[row][col].getValue() > highest) {
-                    highest = grid[row][col].getValue();
-                }
-            }
+        return highestExponent == 0 ? 0 : 1 << highestExponent;
+    }
+
+    public int getHighestExponent() {
+        return highestExponent;
+    }
+
+    // Number of tiles with the given exponent, or empty cells for exponent 0
+    public int getTileCount(int exponent) {
+        if (exponent == 0) {
+            return getEmptyCellCount();
         }
-        return highest;
+        int shift = ((exponent - 1) % COUNTS_PER_WORD) * COUNT_BITS;
+        long counts = exponent <= COUNTS_PER_WORD ? countsLo : exponent <= 2 * COUNTS_PER_WORD ? countsHi : countsTop;
+        return (int) (counts >>> shift) & COUNT_MASK;
     }
-    
+
     public int getEmptyCellCount() {
-        int count = 0;
-        for (int row = 0; row < size; row++) {
-            for (int col = 0; col < size; col++) {
-                if (grid[row][col] == null) {
-                    count++;
-                }
-            }
+        int empty = Long.bitCount(emptyCells(lo, CELLS_LO[size])) + Long.bitCount(emptyCells(hi, CELLS_HI[size]));
+        if (upper != 0) {
+            // Tiles of 65536 and up whose low four bits are zero
+            empty -= Long.bitCount(emptyCells(lo, upperCells(0, ROWS_IN_LO)))
+                   + Long.bitCount(emptyCells(hi, upperCells(ROWS_IN_LO, MAX_SIZE)));
         }
-        return count;
+        return empty;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,43 @@
+package game2048;
+
+// Immutable copy of a game's board at one version. GameSession publishes a new one after
+// every move; any thread can read it without locks and searches rebuild a private Board
+// from it, so they never see a half-finished move.
+public final class BoardSnapshot {
+    private final int size;
+    private final long lo;
+    private final long hi;
+    private final int score;
+    private final boolean won;
+    private final long version;
+
+    BoardSnapshot(Board board, long version) {
+        this.size = board.getSize();
+        this.lo = board.packedLo();
+        this.hi = board.packedHi();
+        this.score = board.getScore();
+        this.won = board.hasWon();
+        this.version = version;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public boolean hasWon() {
+        return won;
+    }
+
+    // A new mutable board with this content, free for the caller to search or play on
+    public Board toBoard() {
+        return Board.fromPacked(size, lo, hi, score, won, new RandomSpawnSource());
+    }
+}
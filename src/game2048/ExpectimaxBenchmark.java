@@ -0,0 +1,178 @@
+package game2048;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+// Measures parallel expectimax speedup on a fixed set of seeded mid-game positions, then
+// what chance-branch pruning and chance-node sampling save. Every setup is run a few times
+// to warm up and then timed over several runs, reporting the median. Usage:
+// java game2048.ExpectimaxBenchmark [depth] [positions] [max threads] [probability threshold] [timed runs]
+public class ExpectimaxBenchmark {
+    private static final long SAMPLING_SEED = 1;
+    private static final int WARMUP_RUNS = 3;
+    private static final long JIT_WARMUP_NANOS = 3_000_000_000L;
+
+    private static int timedRuns = 5;
+
+    private static TranspositionTable lastTable;
+    private static long lastNodeCount;
+
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        int positionCount = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int maxThreads = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+        double threshold = args.length > 3 ? Double.parseDouble(args[3]) : ImprovedExpectimax.DEFAULT_PROBABILITY_THRESHOLD;
+        timedRuns = args.length > 4 ? Math.max(1, Integer.parseInt(args[4])) : timedRuns;
+
+        List<Board> positions = createPositions(positionCount, 2048L);
+        List<List<ImprovedExpectimax.MoveEvaluation>> serialResults = new ArrayList<>();
+
+        // Serial and parallel code both get compiled before anything is timed
+        ForkJoinPool warmupPool = new ForkJoinPool(2);
+        long warmupEnd = System.nanoTime() + JIT_WARMUP_NANOS;
+        while (System.nanoTime() < warmupEnd) {
+            search(positions, depth, null, 0, false, null);
+            search(positions, depth, warmupPool, 0, false, null);
+        }
+        warmupPool.shutdown();
+
+        // The exhaustive serial search is the reference
+        long serialNanos = medianNanos(positions, depth, null, 0, false, serialResults);
+        long serialNodes = lastNodeCount;
+        System.out.printf("depth %d, %d positions, %d cores available, median of %d runs%n",
+            depth, positionCount, Runtime.getRuntime().availableProcessors(), timedRuns);
+        System.out.printf("serial       %8.1f ms   table hits %.1f%%%n", serialNanos / 1e6, lastTable.getHitRate() * 100);
+
+        long oneThreadNanos = 0;
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            List<List<ImprovedExpectimax.MoveEvaluation>> results = new ArrayList<>();
+            long nanos = medianNanos(positions, depth, pool, 0, false, results);
+            pool.shutdown();
+
+            if (threads == 1) {
+                oneThreadNanos = nanos;
+            }
+            System.out.printf("%2d threads   %8.1f ms   speedup %.2fx   %s   table hits %.1f%%, collisions %.2f%%%n",
+                threads, nanos / 1e6, (double) oneThreadNanos / nanos,
+                sameScores(serialResults, results) ? "same scores" : "SCORES DIFFER",
+                lastTable.getHitRate() * 100, lastTable.getCollisionRate() * 100);
+        }
+
+        List<List<ImprovedExpectimax.MoveEvaluation>> prunedResults = new ArrayList<>();
+        long prunedNanos = medianNanos(positions, depth, null, threshold, false, prunedResults);
+        System.out.printf("pruned at %g   %8.1f ms   %.1f%% of the nodes   same best move in %d of %d positions%n",
+            threshold, prunedNanos / 1e6, 100.0 * lastNodeCount / serialNodes,
+            sameBestMoves(serialResults, prunedResults), positionCount);
+
+        List<List<ImprovedExpectimax.MoveEvaluation>> sampledResults = new ArrayList<>();
+        long sampledNanos = medianNanos(positions, depth, null, 0, true, sampledResults);
+        System.out.printf("sampled above %d empty cells   %8.1f ms   %.1f%% of the nodes   same best move in %d of %d positions   mean error %.3f%n",
+            GameSession.SAMPLING_MIN_EMPTY_CELLS, sampledNanos / 1e6, 100.0 * lastNodeCount / serialNodes,
+            sameBestMoves(serialResults, sampledResults), positionCount, meanBestMoveError(sampledResults));
+    }
+
+    // Median time over the timed runs, after warm-up runs, so JIT compilation and GC pauses do
+    // not pass for speedups; results, node count and table are those of the last run
+    private static long medianNanos(List<Board> positions, int depth, ForkJoinPool pool, double threshold, boolean sampled,
+                                    List<List<ImprovedExpectimax.MoveEvaluation>> results) {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            search(positions, depth, pool, threshold, sampled, null);
+        }
+
+        long[] nanos = new long[timedRuns];
+        for (int i = 0; i < timedRuns; i++) {
+            results.clear();
+            nanos[i] = search(positions, depth, pool, threshold, sampled, results);
+        }
+        Arrays.sort(nanos);
+        return nanos[timedRuns / 2];
+    }
+
+    private static long search(List<Board> positions, int depth, ForkJoinPool pool, double threshold, boolean sampled,
+                               List<List<ImprovedExpectimax.MoveEvaluation>> results) {
+        long start = System.nanoTime();
+        lastNodeCount = 0;
+        for (Board position : positions) {
+            lastTable = new TranspositionTable(16);
+            ImprovedExpectimax search = new ImprovedExpectimax(position, depth, lastTable);
+            search.setProbabilityThreshold(threshold);
+            if (sampled) {
+                search.setChanceSampling(GameSession.SAMPLING_MIN_EMPTY_CELLS, GameSession.CHANCE_SAMPLES, SAMPLING_SEED);
+            }
+            if (pool != null) {
+                search.setParallelism(pool, GameSession.PARALLEL_MIN_EMPTY_CELLS);
+            }
+            List<ImprovedExpectimax.MoveEvaluation> moves = search.getTopMoves();
+            lastNodeCount += search.getNodeCount();
+            if (results != null) {
+                results.add(moves);
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static int sameBestMoves(List<List<ImprovedExpectimax.MoveEvaluation>> expected,
+                                     List<List<ImprovedExpectimax.MoveEvaluation>> actual) {
+        int same = 0;
+        for (int i = 0; i < expected.size(); i++) {
+            if (expected.get(i).isEmpty() || expected.get(i).get(0).direction == actual.get(i).get(0).direction) {
+                same++;
+            }
+        }
+        return same;
+    }
+
+    private static double meanBestMoveError(List<List<ImprovedExpectimax.MoveEvaluation>> results) {
+        double total = 0;
+        int count = 0;
+        for (List<ImprovedExpectimax.MoveEvaluation> moves : results) {
+            if (!moves.isEmpty()) {
+                total += moves.get(0).error;
+                count++;
+            }
+        }
+        return count == 0 ? 0 : total / count;
+    }
+
+    private static boolean sameScores(List<List<ImprovedExpectimax.MoveEvaluation>> expected,
+                                      List<List<ImprovedExpectimax.MoveEvaluation>> actual) {
+        for (int i = 0; i < expected.size(); i++) {
+            List<ImprovedExpectimax.MoveEvaluation> a = expected.get(i);
+            List<ImprovedExpectimax.MoveEvaluation> b = actual.get(i);
+            if (a.size() != b.size()) {
+                return false;
+            }
+            for (int j = 0; j < a.size(); j++) {
+                if (a.get(j).direction != b.get(j).direction || a.get(j).score != b.get(j).score) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    // Plays seeded random games for a while to get realistic, reproducible positions
+    static List<Board> createPositions(int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Board> positions = new ArrayList<>();
+
+        while (positions.size() < count) {
+            Board board = new Board(GameSession.BOARD_SIZE, new RandomSpawnSource(random.nextLong()));
+            board.addRandomTile();
+            board.addRandomTile();
+
+            int moves = 20 + random.nextInt(150);
+            for (int i = 0; i < moves && !board.isGameOver(); i++) {
+                if (board.move(random.nextInt(4))) {
+                    board.addRandomTile();
+                }
+            }
+
+            if (!board.isGameOver()) {
+                positions.add(board);
+            }
+        }
+        return positions;
+    }
+}
@@ -3,23 +3,14 @@ package game2048;
 import javax.swing.*;
 import java.awt.*;
 
-public class Game extends JFrame {
+public class Game extends JFrame implements GameSession.Listener {
     private SplashScreen splashScreen;
     private NameInputPanel nameInputPanel;
     private GameplayScreen gameplayScreen;
-    private Board board;
-    private ImprovedExpectimax improvedEX; 
-    private int score;
-    private long startTime;
-    private boolean gameStarted;
+    private GameSession session;
     private String playerName = "Player";
     private MusicPlayer musicPlayer;
     
-    // Auto-suggest mode variables
-    private boolean autoSuggestMode = false;
-    private int remainingSuggestions = 0;
-    private static final int TOTAL_AUTO_SUGGESTIONS = 8;
-    
     public Game() {
         setTitle("THE ULTIMATE 2048 GAME");
         setSize(1120, 630);
@@ -27,9 +18,6 @@ public class Game extends JFrame {
         setResizable(false);
         setLocationRelativeTo(null);
         
-        score = 0;
-        gameStarted = false;
-        
         // Initialize music player
         musicPlayer = new MusicPlayer();
         
@@ -82,16 +70,11 @@ public class Game extends JFrame {
     }
     
     public void startNewGame() {
-        board = new Board(5);
-        improvedEX = new ImprovedExpectimax(board);
-        score = 0;
-        startTime = System.currentTimeMillis();
-        gameStarted = true;
-        autoSuggestMode = false;
-        remainingSuggestions = 0;
-        
-        board.addRandomTile();
-        board.addRandomTile();
+        if (session != null) {
+            session.close();
+        }
+        session = new GameSession();
+        session.setListener(this);
         
         showGameplayScreen();
         
@@ -100,7 +83,7 @@ public class Game extends JFrame {
     }
     
     private void showGameplayScreen() {
-        gameplayScreen = new GameplayScreen(this, board);
+        gameplayScreen = new GameplayScreen(this, session.getBoard());
         setContentPane(gameplayScreen);
         revalidate();
         repaint();
@@ -108,12 +91,10 @@ public class Game extends JFrame {
     }
     
     public void returnToMainMenu() {
-        gameStarted = false;
-        board = null;
-        improvedEX = null; 
-        score = 0;
-        autoSuggestMode = false;
-        remainingSuggestions = 0;
+        if (session != null) {
+            session.close();
+        }
+        session = null;
         playerName = "Player";
         
         showSplashScreen();
@@ -123,56 +104,48 @@ public class Game extends JFrame {
     }
     
     public boolean makeMove(int direction) {
-        if (!gameStarted) return false;
-        
-        boolean moved = board.move(direction);
-        
-        if (moved) {
-            board.addRandomTile();
-            updateScore();
-            
-            // If auto-suggest mode is active, decrease counter
-            if (autoSuggestMode && remainingSuggestions > 0) {
-                remainingSuggestions--;
-                
-                // If still have remaining suggestions, auto-update
-                if (remainingSuggestions > 0) {
-                    // Trigger auto-suggestion update in the UI
-                    if (gameplayScreen != null) {
-                        gameplayScreen.updateAutoSuggestion();
-                    }
-                } else {
-                    // Auto-suggest mode completed
-                    autoSuggestMode = false;
-                    if (gameplayScreen != null) {
-                        gameplayScreen.showCompletionMessage();
-                    }
-                }
-            }
-            
-            if (board.isGameOver()) {
-                gameOver();
-            } else if (board.hasWon()) {
-                victory();
-            }
-        }
+        if (session == null) return false;
         
-        return moved;
+        return session.makeMove(direction);
     }
     
-    private void updateScore() {
-        score = board.getScore();
+    @Override
+    public void boardChanged(GameSession session) {
         if (gameplayScreen != null) {
             gameplayScreen.updateDisplay();
         }
     }
     
+    @Override
+    public void suggestionNeeded(GameSession session) {
+        // Trigger auto-suggestion update in the UI
+        if (gameplayScreen != null) {
+            gameplayScreen.updateAutoSuggestion();
+        }
+    }
+    
+    @Override
+    public void autoSuggestCompleted(GameSession session) {
+        if (gameplayScreen != null) {
+            gameplayScreen.showCompletionMessage();
+        }
+    }
+    
+    @Override
+    public void gameOver(GameSession session) {
+        gameOver();
+    }
+    
+    @Override
+    public void victory(GameSession session) {
+        victory();
+    }
+    
     // Activates auto-suggest mode for 8 consecutive moves
     public void activateAutoSuggestMode() {
-        if (!gameStarted || board == null) return;
+        if (session == null) return;
         
-        autoSuggestMode = true;
-        remainingSuggestions = TOTAL_AUTO_SUGGESTIONS;
+        session.activateAutoSuggestMode();
         
         // Trigger first suggestion immediately
         if (gameplayScreen != null) {
@@ -182,74 +155,39 @@ public class Game extends JFrame {
     
     // Gets current suggestion (simplified and clean)
     public String getSuggestion() {
-        if (!gameStarted || board == null) {
+        if (session == null) {
             return "No suggestion available";
         }
         
-        // Create fresh Suggestion instance with current board state
-        improvedEX = new ImprovedExpectimax(board);
-        
-        if (autoSuggestMode) {
-            // In auto-suggest mode, show simple move suggestion
-            var topMoves = improvedEX.getTopMoves();
-            
-            if (topMoves.isEmpty()) {
-                autoSuggestMode = false;
-                return "No valid moves available!";
-            }
-            
-            var bestMove = topMoves.get(0);
-            
-            // Simple format - Just the move number and direction
-            StringBuilder sb = new StringBuilder();
-            sb.append("SUGGESTION\n\n");
-            sb.append("Move ").append(TOTAL_AUTO_SUGGESTIONS - remainingSuggestions + 1);
-            sb.append(" of ").append(TOTAL_AUTO_SUGGESTIONS).append("\n\n");
-            sb.append("SUGGESTED MOVE:\n");
-            sb.append("👉 ").append(bestMove.directionName).append("\n\n");
-            sb.append(remainingSuggestions).append(" suggestions remaining");
-            
-            return sb.toString();
-        } else {
-            // Normal mode - show activation message
-            return "CLICK TO ACTIVATE\n\n" +
-                   "Auto-Suggest Mode\n\n" +
-                   "Get 8 consecutive smart\n" +
-                   "move suggestions!\n\n" +
-                   "The Algo will guide you\n" +
-                   "through 8 moves.\n\n" +
-                   "Click to start!";
-        }
+        return session.getSuggestion();
     }
     
     // Check if auto-suggest mode is currently active
     public boolean isAutoSuggestActive() {
-        return autoSuggestMode;
+        return session != null && session.isAutoSuggestActive();
     }
     
     // Manually deactivate auto-suggest mode
     public void deactivateAutoSuggestMode() {
-        autoSuggestMode = false;
-        remainingSuggestions = 0;
+        if (session != null) {
+            session.deactivateAutoSuggestMode();
+        }
     }
     
     private void gameOver() {
-        autoSuggestMode = false;
         JOptionPane.showMessageDialog(this, 
-            "Game Over, " + playerName + "!\n\nYour score: " + score, 
+            "Game Over, " + playerName + "!\n\nYour score: " + getScore(), 
             "Game Over", 
             JOptionPane.INFORMATION_MESSAGE);
         returnToMainMenu();
     }
     
     private void victory() {
-        autoSuggestMode = false;
-        
         // Show congratulations message
         JOptionPane.showMessageDialog(this,
             "-- CONGRATULATIONS " + playerName.toUpperCase() + "! --\n\n" +
             "You reached 2048!\n" +
-            "Final Score: " + score + "\n\n" +
+            "Final Score: " + getScore() + "\n\n" +
             "You are a 2048 Master!",
             "-- VICTORY! --",
             JOptionPane.INFORMATION_MESSAGE);
@@ -259,16 +197,20 @@ public class Game extends JFrame {
     }
     
     public int getScore() {
-        return score;
+        return session == null ? 0 : session.getScore();
     }
     
     public long getElapsedTime() {
-        if (!gameStarted) return 0;
-        return (System.currentTimeMillis() - startTime) / 1000;
+        if (session == null) return 0;
+        return session.getElapsedTime();
     }
     
     public Board getBoard() {
-        return board;
+        return session == null ? null : session.getBoard();
+    }
+    
+    public GameSession getSession() {
+        return session;
     }
     
     // Getter for music player
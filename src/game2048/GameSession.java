@@ -0,0 +1,362 @@
+package game2048;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+
+// Headless game engine: board, score, timing, win/loss rules and the auto-suggest mode.
+// It never touches Swing, so any number of sessions can run without a display;
+// Game and GameplayScreen only observe it through a Listener.
+public class GameSession {
+    public static final int BOARD_SIZE = 5;
+    public static final int TOTAL_AUTO_SUGGESTIONS = 8;
+
+    // Upper bound on how long one suggestion searches, whatever the board looks like
+    public static final long SUGGESTION_TIME_BUDGET_MS = 150;
+
+    // Opening boards have up to 23 empty cells; with sampling on, chance nodes with more empty
+    // cells than this are estimated from a fixed number of sampled cells. Suggestions search
+    // exhaustively unless -Dgame2048.chanceSampling=true: a paired Tournament of "timed"
+    // against "timed-sampled" has to show first that sampling is not weaker.
+    public static final boolean CHANCE_SAMPLING = Boolean.getBoolean("game2048.chanceSampling");
+    public static final int SAMPLING_MIN_EMPTY_CELLS = 12;
+    public static final int CHANCE_SAMPLES = 6;
+    private static final long SAMPLING_SEED = 2048;
+
+    // Threads one suggestion search is split across, -Dgame2048.searchThreads; the default 1
+    // searches on the calling thread. ExpectimaxBenchmark shows the speedup per thread count.
+    public static final int SEARCH_THREADS = Integer.getInteger("game2048.searchThreads", 1);
+    static final int PARALLEL_MIN_EMPTY_CELLS = 4;
+
+    // Memory for each session's search cache, -Dgame2048.tableBytes overrides the 8 MB default
+    static final long TABLE_MEMORY_BYTES = Long.getLong("game2048.tableBytes", 8L << 20);
+
+    // Compact state: board words, score, move count, start time and flags
+    private static final int COMPACT_STATE_BYTES = 8 + 8 + 4 + 4 + 8 + 1;
+    private static final int COMPACT_SCORE_OFFSET = 16;
+    private static final int COMPACT_FLAGS_OFFSET = 32;
+    private static final int WON_FLAG = 1;
+    private static final int FINISHED_FLAG = 2;
+
+    // Shared by all sessions, created on first use
+    private static class SearchPool {
+        static final ForkJoinPool POOL = new ForkJoinPool(SEARCH_THREADS);
+    }
+
+    // Callbacks run on the thread that called makeMove
+    public interface Listener {
+        default void boardChanged(GameSession session) {}
+
+        // A move was made in auto-suggest mode and a fresh suggestion is due
+        default void suggestionNeeded(GameSession session) {}
+
+        default void autoSuggestCompleted(GameSession session) {}
+
+        default void gameOver(GameSession session) {}
+
+        default void victory(GameSession session) {}
+    }
+
+    private final Board board;
+    private final long startTime;
+    private int score;
+    private int moveCount;
+    private volatile boolean finished;
+    private Listener listener;
+    private TranspositionTable searchTable;
+    private volatile Ponderer ponderer;
+    private volatile ImprovedExpectimax liveSearch;
+
+    // Republished after every move that changes the board; its version tells late
+    // suggestions apart from current ones
+    private volatile BoardSnapshot snapshot;
+
+    // Auto-suggest mode variables, also read by suggestion threads
+    private volatile boolean autoSuggestMode = false;
+    private volatile int remainingSuggestions = 0;
+
+    public GameSession() {
+        this(new RandomSpawnSource());
+    }
+
+    public GameSession(SpawnSource spawnSource) {
+        board = new Board(BOARD_SIZE, spawnSource);
+        board.addRandomTile();
+        board.addRandomTile();
+        startTime = System.currentTimeMillis();
+        snapshot = new BoardSnapshot(board, 0);
+    }
+
+    private GameSession(Board board, int moveCount, long startTime, boolean finished) {
+        this.board = board;
+        this.score = board.getScore();
+        this.moveCount = moveCount;
+        this.startTime = startTime;
+        this.finished = finished;
+        this.snapshot = new BoardSnapshot(board, 0);
+    }
+
+    // Serializes the game without its spawn source or listener; auto-suggest mode is not kept
+    public byte[] toCompactState() {
+        ByteBuffer buffer = ByteBuffer.allocate(COMPACT_STATE_BYTES);
+        buffer.putLong(board.packedLo());
+        buffer.putLong(board.packedHi());
+        buffer.putInt(score);
+        buffer.putInt(moveCount);
+        buffer.putLong(startTime);
+        buffer.put((byte) ((board.hasWon() ? WON_FLAG : 0) | (finished ? FINISHED_FLAG : 0)));
+        return buffer.array();
+    }
+
+    public static GameSession fromCompactState(byte[] state, SpawnSource spawnSource) {
+        ByteBuffer buffer = ByteBuffer.wrap(state);
+        long lo = buffer.getLong();
+        long hi = buffer.getLong();
+        int score = buffer.getInt();
+        int moveCount = buffer.getInt();
+        long startTime = buffer.getLong();
+        int flags = buffer.get();
+
+        Board board = Board.fromPacked(BOARD_SIZE, lo, hi, score, (flags & WON_FLAG) != 0, spawnSource);
+        return new GameSession(board, moveCount, startTime, (flags & FINISHED_FLAG) != 0);
+    }
+
+    // Reads one field of a compact state without rebuilding the session
+    static int compactScore(byte[] state) {
+        return ByteBuffer.wrap(state).getInt(COMPACT_SCORE_OFFSET);
+    }
+
+    static boolean compactFinished(byte[] state) {
+        return (state[COMPACT_FLAGS_OFFSET] & FINISHED_FLAG) != 0;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public boolean makeMove(int direction) {
+        if (finished) return false;
+
+        boolean moved = board.move(direction);
+
+        if (moved) {
+            if (ponderer != null) {
+                ponderer.moveMade(direction);
+            }
+
+            board.addRandomTile();
+            score = board.getScore();
+            moveCount++;
+            snapshot = new BoardSnapshot(board, snapshot.getVersion() + 1);
+
+            if (listener != null) {
+                listener.boardChanged(this);
+            }
+
+            // If auto-suggest mode is active, decrease counter
+            if (autoSuggestMode && remainingSuggestions > 0) {
+                remainingSuggestions--;
+
+                if (remainingSuggestions > 0) {
+                    if (listener != null) {
+                        listener.suggestionNeeded(this);
+                    }
+                } else {
+                    // Auto-suggest mode completed
+                    autoSuggestMode = false;
+                    if (listener != null) {
+                        listener.autoSuggestCompleted(this);
+                    }
+                }
+            }
+
+            if (board.isGameOver()) {
+                finish();
+                if (listener != null) {
+                    listener.gameOver(this);
+                }
+            } else if (board.hasWon()) {
+                finish();
+                if (listener != null) {
+                    listener.victory(this);
+                }
+            }
+        }
+
+        return moved;
+    }
+
+    private void finish() {
+        finished = true;
+        autoSuggestMode = false;
+        cancelPondering();
+    }
+
+    // Activates auto-suggest mode for 8 consecutive moves
+    public void activateAutoSuggestMode() {
+        if (finished) return;
+
+        autoSuggestMode = true;
+        remainingSuggestions = TOTAL_AUTO_SUGGESTIONS;
+    }
+
+    public void deactivateAutoSuggestMode() {
+        autoSuggestMode = false;
+        remainingSuggestions = 0;
+        cancelPondering();
+    }
+
+    // Stops background work for a session that is being abandoned
+    public void close() {
+        deactivateAutoSuggestMode();
+        cancelSuggestion();
+        synchronized (this) {
+            if (ponderer != null) {
+                ponderer.shutdown();
+                ponderer = null;
+            }
+        }
+    }
+
+    public boolean isAutoSuggestActive() {
+        return autoSuggestMode;
+    }
+
+    public int getRemainingSuggestions() {
+        return remainingSuggestions;
+    }
+
+    // Gets current suggestion text for the side panel
+    public String getSuggestion() {
+        return getSuggestion(snapshot);
+    }
+
+    // Suggestion for a published snapshot; safe on any thread while the game goes on
+    public String getSuggestion(BoardSnapshot snapshot) {
+        if (finished) {
+            return "No suggestion available";
+        }
+
+        if (autoSuggestMode) {
+            // In auto-suggest mode, show simple move suggestion
+            Board position = snapshot.toBoard();
+            Ponderer ponderer = getPonderer();
+            var topMoves = ponderer.take(position);
+            boolean cancelled = false;
+            if (topMoves == null) {
+                ImprovedExpectimax search = createSearch(position);
+                liveSearch = search;
+                topMoves = search.getTopMoves(SUGGESTION_TIME_BUDGET_MS).moves;
+                liveSearch = null;
+                cancelled = search.isCancelled();
+            }
+
+            if (topMoves.isEmpty()) {
+                autoSuggestMode = false;
+                return "No valid moves available!";
+            }
+
+            var bestMove = topMoves.get(0);
+
+            // The player is likely to follow this suggestion; search the replies meanwhile
+            if (remainingSuggestions > 1 && !cancelled) {
+                ponderer.ponder(position, bestMove.direction);
+            }
+
+            // Simple format - Just the move number and direction
+            StringBuilder sb = new StringBuilder();
+            sb.append("SUGGESTION\n\n");
+            sb.append("Move ").append(TOTAL_AUTO_SUGGESTIONS - remainingSuggestions + 1);
+            sb.append(" of ").append(TOTAL_AUTO_SUGGESTIONS).append("\n\n");
+            sb.append("SUGGESTED MOVE:\n");
+            sb.append("👉 ").append(bestMove.directionName).append("\n\n");
+            sb.append(remainingSuggestions).append(" suggestions remaining");
+
+            return sb.toString();
+        } else {
+            // Normal mode - show activation message
+            return "CLICK TO ACTIVATE\n\n" +
+                   "Auto-Suggest Mode\n\n" +
+                   "Get 8 consecutive smart\n" +
+                   "move suggestions!\n\n" +
+                   "The Algo will guide you\n" +
+                   "through 8 moves.\n\n" +
+                   "Click to start!";
+        }
+    }
+
+    // Stops the search of a getSuggestion call running on another thread; it then returns
+    // early with a shallower result, meant to be discarded
+    public void cancelSuggestion() {
+        ImprovedExpectimax search = liveSearch;
+        if (search != null) {
+            search.cancel();
+        }
+    }
+
+    public BoardSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public long getBoardVersion() {
+        return snapshot.getVersion();
+    }
+
+    private ImprovedExpectimax createSearch(Board position) {
+        var search = new ImprovedExpectimax(position, ImprovedExpectimax.SEARCH_DEPTH, getSearchTable());
+        if (CHANCE_SAMPLING) {
+            enableChanceSampling(search);
+        }
+        if (SEARCH_THREADS > 1) {
+            search.setParallelism(SearchPool.POOL, PARALLEL_MIN_EMPTY_CELLS);
+        }
+        return search;
+    }
+
+    // The sampling settings suggestions use when CHANCE_SAMPLING is on
+    static void enableChanceSampling(ImprovedExpectimax search) {
+        search.setChanceSampling(SAMPLING_MIN_EMPTY_CELLS, CHANCE_SAMPLES, SAMPLING_SEED);
+    }
+
+    // Created with the first suggestion, so sessions that never ask for one start no thread
+    private synchronized Ponderer getPonderer() {
+        if (ponderer == null) {
+            ponderer = new Ponderer(this::createSearch, SUGGESTION_TIME_BUDGET_MS);
+        }
+        return ponderer;
+    }
+
+    private synchronized void cancelPondering() {
+        if (ponderer != null) {
+            ponderer.cancel();
+        }
+    }
+
+    // Kept across suggestions so positions searched for one move are reused for the next;
+    // safe to share because the table is lock-free
+    private synchronized TranspositionTable getSearchTable() {
+        if (searchTable == null) {
+            searchTable = TranspositionTable.withMemoryBudget(TABLE_MEMORY_BYTES);
+        }
+        return searchTable;
+    }
+
+    public Board getBoard() {
+        return board;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public long getElapsedTime() {
+        return (System.currentTimeMillis() - startTime) / 1000;
+    }
+}
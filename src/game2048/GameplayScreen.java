@@ -17,6 +17,7 @@ public class GameplayScreen extends JPanel {
     private Rectangle muteButtonBounds;
     private Rectangle quitButtonBounds;
     private String suggestionText = "Click to activate Auto-Suggest";
+    private final SuggestionExecutor suggestions = new SuggestionExecutor();
     
     // Animation variables
     private float pulseAlpha = 0f;
@@ -131,6 +132,7 @@ public class GameplayScreen extends JPanel {
                         break;
                     case KeyEvent.VK_ESCAPE:
                         if (game.isAutoSuggestActive()) {
+                            suggestions.cancel(game.getSession());
                             game.deactivateAutoSuggestMode();
                             suggestionText = "Auto-suggest cancelled.\nClick to start again.";
                             repaint();
@@ -188,34 +190,30 @@ public class GameplayScreen extends JPanel {
     
     private void handleSuggestionClick() {
         if (!game.isAutoSuggestActive()) {
+            // Shown until the first suggestion arrives
             suggestionText = "Activating Suggestion...";
             repaint();
             
-            new Thread(() -> {
-                try {
-                    Thread.sleep(300);
-                } catch (InterruptedException ex) {}
-                
-                game.activateAutoSuggestMode();
-                
-                SwingUtilities.invokeLater(() -> {
-                    updateAutoSuggestion();
-                });
-            }).start();
+            game.activateAutoSuggestMode();
         } else {
             updateAutoSuggestion();
         }
     }
     
     public void updateAutoSuggestion() {
-        new Thread(() -> {
-            String suggestion = game.getSuggestion();
-            
-            SwingUtilities.invokeLater(() -> {
+        GameSession session = game.getSession();
+        if (session == null) {
+            return;
+        }
+        
+        long version = session.getBoardVersion();
+        suggestions.request(session, suggestion -> SwingUtilities.invokeLater(() -> {
+            // The player may have moved again, or left auto-suggest, while this was queued for the EDT
+            if (game.getSession() == session && session.getBoardVersion() == version && session.isAutoSuggestActive()) {
                 suggestionText = suggestion;
                 repaint();
-            });
-        }).start();
+            }
+        }));
     }
     
     public void showCompletionMessage() {
@@ -0,0 +1,60 @@
+package game2048;
+
+// Precomputed heuristic terms of one 5-cell line, indexed like MoveTable by the five packed
+// exponents; lines with a tile of 65536 or more are rare and evaluated on the spot. Each
+// entry packs the line's monotonicity (the larger of its non-decreasing and non-increasing
+// neighbour counts) in bits 0-7 and its roughness (the summed exponent differences of
+// neighbouring tiles) in bits 8-15. Empty cells take no part in either.
+//
+// A board's entries can be added up as plain ints and unpacked once: ten lines of a 5x5
+// board reach at most 40 and 1160, so the fields never spill into each other.
+final class HeuristicTable {
+    private static final int MONOTONICITY_MASK = 0xFF;
+    private static final int ROUGHNESS_SHIFT = 8;
+
+    private HeuristicTable() {
+    }
+
+    // Built on first use by the class loader, 2 MB
+    private static class Holder {
+        static final char[] LINES = buildTable();
+    }
+
+    static int lookup(int line) {
+        return line <= MoveTable.LINE_MASK ? Holder.LINES[line] : evaluate(line);
+    }
+
+    static int monotonicity(int entries) {
+        return entries & MONOTONICITY_MASK;
+    }
+
+    static int roughness(int entries) {
+        return entries >>> ROUGHNESS_SHIFT;
+    }
+
+    private static char[] buildTable() {
+        char[] table = new char[1 << MoveTable.LINE_BITS];
+        for (int line = 0; line < table.length; line++) {
+            table[line] = (char) evaluate(line);
+        }
+        return table;
+    }
+
+    private static int evaluate(int line) {
+        int increasing = 0, decreasing = 0;
+        int roughness = 0;
+
+        for (int i = 0; i < MoveTable.CELLS - 1; i++) {
+            int current = MoveTable.exponent(line, i);
+            int next = MoveTable.exponent(line, i + 1);
+
+            if (current != 0 && next != 0) {
+                if (current <= next) increasing++;
+                if (current >= next) decreasing++;
+                roughness += Math.abs(current - next);
+            }
+        }
+
+        return Math.max(increasing, decreasing) | (roughness << ROUGHNESS_SHIFT);
+    }
+}
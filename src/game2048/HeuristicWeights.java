@@ -0,0 +1,137 @@
+package game2048;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Properties;
+
+// Weights of the board heuristics in ImprovedExpectimax and Suggestion. The defaults are the
+// hand-picked values; WeightTuner writes better ones to a properties file, which is loaded
+// at startup from -Dgame2048.weights (default weights.properties in the working directory).
+public final class HeuristicWeights {
+    public static final String FILE_PROPERTY = "game2048.weights";
+    public static final String DEFAULT_FILE = "weights.properties";
+
+    // Property keys, in the order of toArray()
+    public static final String[] KEYS = {
+        "expectimax.monotonicity", "expectimax.smoothness", "expectimax.empty", "expectimax.maxTile",
+        "suggestion.score", "suggestion.empty", "suggestion.highestTile",
+        "suggestion.monotonicity", "suggestion.smoothness", "suggestion.corner"
+    };
+
+    // Index ranges of each advisor's weights in toArray()
+    public static final int EXPECTIMAX_FIRST = 0;
+    public static final int EXPECTIMAX_COUNT = 4;
+    public static final int SUGGESTION_FIRST = 4;
+    public static final int SUGGESTION_COUNT = 6;
+
+    private static final double[] DEFAULTS = {1.0, 0.1, 2.7, 1.0, 2, 100, 10, 50, 30, 80};
+
+    public final double monotonicity;
+    public final double smoothness;
+    public final double empty;
+    public final double maxTile;
+
+    public final double suggestionScore;
+    public final double suggestionEmpty;
+    public final double suggestionHighestTile;
+    public final double suggestionMonotonicity;
+    public final double suggestionSmoothness;
+    public final double suggestionCorner;
+
+    // Read once, on first use
+    private static class Holder {
+        static final HeuristicWeights LOADED = loadConfigured();
+    }
+
+    public HeuristicWeights(double[] values) {
+        if (values.length != KEYS.length) {
+            throw new IllegalArgumentException("Expected " + KEYS.length + " weights: " + values.length);
+        }
+        monotonicity = values[0];
+        smoothness = values[1];
+        empty = values[2];
+        maxTile = values[3];
+        suggestionScore = values[4];
+        suggestionEmpty = values[5];
+        suggestionHighestTile = values[6];
+        suggestionMonotonicity = values[7];
+        suggestionSmoothness = values[8];
+        suggestionCorner = values[9];
+    }
+
+    public static HeuristicWeights defaults() {
+        return new HeuristicWeights(DEFAULTS);
+    }
+
+    // The weights the game plays with: the configured file if it exists, else the defaults
+    public static HeuristicWeights loaded() {
+        return Holder.LOADED;
+    }
+
+    public double[] toArray() {
+        return new double[]{
+            monotonicity, smoothness, empty, maxTile,
+            suggestionScore, suggestionEmpty, suggestionHighestTile,
+            suggestionMonotonicity, suggestionSmoothness, suggestionCorner
+        };
+    }
+
+    // Missing keys keep their default value
+    public static HeuristicWeights load(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+
+        double[] values = DEFAULTS.clone();
+        for (int i = 0; i < KEYS.length; i++) {
+            String value = properties.getProperty(KEYS[i]);
+            if (value != null) {
+                values[i] = Double.parseDouble(value.trim());
+            }
+        }
+        return new HeuristicWeights(values);
+    }
+
+    public void save(Path file, String comment) throws IOException {
+        Properties properties = new Properties();
+        double[] values = toArray();
+        for (int i = 0; i < KEYS.length; i++) {
+            properties.setProperty(KEYS[i], String.valueOf(values[i]));
+        }
+
+        // Written next to the target and moved over it, so readers never see half a file
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            properties.store(writer, comment);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static HeuristicWeights loadConfigured() {
+        Path file = Paths.get(System.getProperty(FILE_PROPERTY, DEFAULT_FILE));
+        if (!Files.exists(file)) {
+            return defaults();
+        }
+
+        try {
+            HeuristicWeights weights = load(file);
+            System.out.println("Using heuristic weights from " + file.toAbsolutePath());
+            return weights;
+        } catch (IOException | NumberFormatException e) {
+            System.out.println("Could not read weights from " + file + ", using defaults: " + e.getMessage());
+            return defaults();
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        double[] values = toArray();
+        for (int i = 0; i < KEYS.length; i++) {
+            sb.append(i == 0 ? "" : ", ").append(KEYS[i]).append('=').append(String.format("%.4g", values[i]));
+        }
+        return sb.toString();
+    }
+}
@@ -1,17 +1,45 @@
 package game2048;
 
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 public class ImprovedExpectimax {
-    private static final int SEARCH_DEPTH = 3;
+    public static final int SEARCH_DEPTH = 3;
     
-    // Heuristic weights
-    private static final double MONOTONICITY_WEIGHT = 1.0;
-    private static final double SMOOTHNESS_WEIGHT = 0.1;
-    private static final double EMPTY_WEIGHT = 2.7;
-    private static final double MAX_TILE_WEIGHT = 1.0;
+    // Iterative deepening stops here even with time left, and reads the clock every 1024 nodes
+    private static final int MAX_ITERATIVE_DEPTH = 20;
+    private static final int DEADLINE_CHECK_MASK = 1023;
+    
+    // Parallel search only splits chance nodes with enough work below them,
+    // and hands each leaf task at least this many cells
+    private static final int PARALLEL_MIN_DEPTH = 3;
+    private static final int CHANCE_SPLIT_GRAIN = 2;
+    
+    // Paths less likely than this end at the static evaluation instead of being searched
+    public static final double DEFAULT_PROBABILITY_THRESHOLD = 0.0001;
+    
+    // Chance nodes are sampled only when enabled with setChanceSampling
+    private static final int SAMPLING_OFF = Integer.MAX_VALUE;
     
     private Board board;
+    private int searchDepth;
+    private TranspositionTable table;
+    private HeuristicWeights weights = HeuristicWeights.loaded();
+    
+    private ForkJoinPool pool;
+    private int parallelMinEmptyCells;
+    private double probabilityThreshold = DEFAULT_PROBABILITY_THRESHOLD;
+    private int samplingMinEmptyCells = SAMPLING_OFF;
+    private int chanceSamples;
+    private long samplingSeed;
+    
+    private volatile long deadlineNanos = Long.MAX_VALUE;
+    private long nodeCount;
+    private volatile boolean outOfTime;
+    private volatile boolean cancelled;
     
     // Class to store move evaluation results
     public static class MoveEvaluation implements Comparable<MoveEvaluation> {
@@ -20,6 +48,9 @@ public class ImprovedExpectimax {
         public String directionName;
         public String reasoning;
         
+        // Estimated standard error of score from sampling the spawns after this move, 0 if exact
+        public double error;
+        
         public MoveEvaluation(int direction, double score, String directionName, String reasoning) {
             this.direction = direction;
             this.score = score;
@@ -33,35 +64,262 @@ public class ImprovedExpectimax {
         }
     }
     
+    // Result of a time-budgeted search: the top moves of the deepest completed iteration
+    public static class SearchResult {
+        public List<MoveEvaluation> moves;
+        public int depth;
+        
+        public SearchResult(List<MoveEvaluation> moves, int depth) {
+            this.moves = moves;
+            this.depth = depth;
+        }
+    }
+    
+    // Searches without a transposition table, so one-off searches allocate nothing up front
     public ImprovedExpectimax(Board board) {
+        this(board, SEARCH_DEPTH, null);
+    }
+    
+    // The table can be kept and passed to later searches to reuse its entries; null searches
+    // without one
+    public ImprovedExpectimax(Board board, int searchDepth, TranspositionTable table) {
         this.board = board;
+        this.searchDepth = searchDepth;
+        this.table = table;
+    }
+    
+    // A table must not be shared between searches with different weights
+    public void setWeights(HeuristicWeights weights) {
+        this.weights = weights;
+    }
+    
+    // Null for a search without a table
+    public TranspositionTable getTranspositionTable() {
+        return table;
+    }
+    
+    // Splits the root moves, and chance nodes with at least minEmptyCells empty cells, across
+    // the pool. All workers share the transposition table, and with pruning off the scores are
+    // identical to the serial search. Pass null to search serially.
+    public void setParallelism(ForkJoinPool pool, int minEmptyCells) {
+        this.pool = pool;
+        this.parallelMinEmptyCells = Math.max(1, minEmptyCells);
+    }
+    
+    // Speed/strength knob: a spawn sequence whose probability falls below the threshold is
+    // not searched further. Higher is faster and shallower in practice, 0 searches everything.
+    public void setProbabilityThreshold(double threshold) {
+        this.probabilityThreshold = Math.max(0, threshold);
+    }
+    
+    public double getProbabilityThreshold() {
+        return probabilityThreshold;
+    }
+    
+    // Chance nodes with more than minEmptyCells empty cells are estimated from `samples`
+    // cells, one drawn at random from each equal stretch of the empty cells in row order and
+    // weighted by that stretch's share. The draw depends only on the seed and the position,
+    // so results are reproducible, also in parallel and through the transposition table.
+    public void setChanceSampling(int minEmptyCells, int samples, long seed) {
+        this.chanceSamples = Math.max(2, samples);
+        this.samplingMinEmptyCells = Math.max(minEmptyCells, chanceSamples);
+        this.samplingSeed = seed;
+    }
+    
+    public void disableChanceSampling() {
+        this.samplingMinEmptyCells = SAMPLING_OFF;
+    }
+    
+    // Positions visited by the last search, including leaves; approximate in parallel searches
+    public long getNodeCount() {
+        return nodeCount;
+    }
+    
+    // Stops a running or future search from another thread. A fixed-depth search that is
+    // stopped throws CancellationException, a time-budgeted one returns its deepest finished
+    // iteration (at least depth 1).
+    public void cancel() {
+        cancelled = true;
+    }
+    
+    public boolean isCancelled() {
+        return cancelled;
     }
     
     public List<MoveEvaluation> getTopMoves() {
+        List<MoveEvaluation> moves = searchRoot(searchDepth);
+        if (moves == null) {
+            throw new CancellationException("Search cancelled");
+        }
+        return moves;
+    }
+    
+    // Iterative deepening: searches depth 1, 2, 3, ... until the time budget runs out and
+    // returns the deepest search that finished. An unfinished iteration is thrown away.
+    public SearchResult getTopMoves(long timeBudgetMillis) {
+        long deadline = System.nanoTime() + timeBudgetMillis * 1_000_000L;
+        
+        // Depth 1 is four static evaluations and always completes, so there is always a result
+        SearchResult result = new SearchResult(searchRoot(1), 1);
+        
+        deadlineNanos = deadline;
+        for (int depth = 2; depth <= MAX_ITERATIVE_DEPTH && !result.moves.isEmpty() && !cancelled && System.nanoTime() < deadline; depth++) {
+            List<MoveEvaluation> moves = searchRoot(depth);
+            if (moves == null) {
+                break;
+            }
+            result = new SearchResult(moves, depth);
+        }
+        deadlineNanos = Long.MAX_VALUE;
+        
+        return result;
+    }
+    
+    // Top three moves at the given depth, or null if the deadline passed or the search was
+    // cancelled; both are only noticed every 1024 nodes
+    private List<MoveEvaluation> searchRoot(int depth) {
+        outOfTime = false;
+        nodeCount = 0;
         List<MoveEvaluation> evaluations = new ArrayList<>();
         String[] directionNames = {"UP ↑", "DOWN ↓", "LEFT ←", "RIGHT →"};
         
-        for (int direction : new int[]{Board.UP, Board.DOWN, Board.LEFT, Board.RIGHT}) {
-            Board clonedBoard = board.copy();
-            
-            if (clonedBoard.move(direction)) {
-                double score = expectimax(clonedBoard, SEARCH_DEPTH - 1, false);
-                String reasoning = generateReasoning(board, clonedBoard, direction);
+        // The whole search makes and unmakes moves on this one working copy
+        Board searchBoard = board.copy();
+        if (table != null) {
+            table.newSearch();
+        }
+        int legalMoves = searchBoard.getLegalMoves();
+        double[] errors = new double[4];
+        double[] parallelScores = pool == null ? null : searchRootInParallel(searchBoard, legalMoves, depth, errors);
+        
+        for (int direction = Board.UP; direction <= Board.RIGHT; direction++) {
+            if ((legalMoves & (1 << direction)) != 0) {
+                searchBoard.applyMove(direction);
+                double score = parallelScores != null ? parallelScores[direction] : rootMoveScore(searchBoard, depth, errors, direction);
+                String reasoning = generateReasoning(board, searchBoard, direction);
+                searchBoard.undoMove();
                 
-                evaluations.add(new MoveEvaluation(
+                MoveEvaluation evaluation = new MoveEvaluation(
                     direction, 
                     score, 
                     directionNames[direction],
                     reasoning
-                ));
+                );
+                evaluation.error = errors[direction];
+                evaluations.add(evaluation);
             }
         }
         
+        if (outOfTime) {
+            return null;
+        }
+        
         Collections.sort(evaluations);
         
         return evaluations.subList(0, Math.min(3, evaluations.size()));
     }
     
+    // Value of the chance node after a root move; a sampled one also reports its error
+    private double rootMoveScore(Board afterMove, int depth, double[] errors, int direction) {
+        if (depth > 1 && afterMove.getEmptyCellCount() > samplingMinEmptyCells) {
+            return sampledChanceNode(afterMove, depth - 1, 1.0, errors, direction);
+        }
+        return expectimax(afterMove, depth - 1, false, 1.0);
+    }
+    
+    private double[] searchRootInParallel(Board searchBoard, int legalMoves, int depth, double[] errors) {
+        double[] scores = new double[4];
+        List<RecursiveAction> tasks = new ArrayList<>();
+        
+        for (int direction = Board.UP; direction <= Board.RIGHT; direction++) {
+            if ((legalMoves & (1 << direction)) != 0) {
+                Board afterMove = searchBoard.copy();
+                afterMove.applyMove(direction);
+                tasks.add(new RootMoveTask(afterMove, depth, direction, scores, errors));
+            }
+        }
+        
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+        
+        return scores;
+    }
+    
+    // Searches one root move on its own board
+    private class RootMoveTask extends RecursiveAction {
+        private final Board board;
+        private final int depth;
+        private final int direction;
+        private final double[] scores;
+        private final double[] errors;
+        
+        RootMoveTask(Board board, int depth, int direction, double[] scores, double[] errors) {
+            this.board = board;
+            this.depth = depth;
+            this.direction = direction;
+            this.scores = scores;
+            this.errors = errors;
+        }
+        
+        @Override
+        protected void compute() {
+            scores[direction] = rootMoveScore(board, depth, errors, direction);
+        }
+    }
+    
+    // Searches a range of a chance node's empty cells on a private copy of the board and
+    // writes each spawn's weighted value to its own slot, so the parent can add them up
+    // in the same order as the serial loop
+    private class ChanceCellsTask extends RecursiveAction {
+        private final Board board;
+        private final int depth;
+        private final double probability;
+        private final int[] cells;
+        private final int from;
+        private final int to;
+        private final double[] contributions;
+        
+        ChanceCellsTask(Board board, int depth, double probability, int[] cells, int from, int to, double[] contributions) {
+            this.board = board;
+            this.depth = depth;
+            this.probability = probability;
+            this.cells = cells;
+            this.from = from;
+            this.to = to;
+            this.contributions = contributions;
+        }
+        
+        @Override
+        protected void compute() {
+            if (to - from > CHANCE_SPLIT_GRAIN) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new ChanceCellsTask(board, depth, probability, cells, from, mid, contributions),
+                          new ChanceCellsTask(board, depth, probability, cells, mid, to, contributions));
+                return;
+            }
+            
+            Board own = board.copy();
+            int size = own.getSize();
+            double cellProbability = probability / cells.length;
+            for (int i = from; i < to; i++) {
+                int row = cells[i] / size;
+                int col = cells[i] % size;
+                
+                own.placeTile(row, col, 1);
+                contributions[2 * i] = 0.9 * expectimax(own, depth - 1, true, cellProbability * 0.9);
+                
+                own.placeTile(row, col, 2);
+                contributions[2 * i + 1] = 0.1 * expectimax(own, depth - 1, true, cellProbability * 0.1);
+                
+                own.removeTile(row, col);
+            }
+        }
+    }
+    
     private String generateReasoning(Board original, Board afterMove, int direction) {
         List<String> reasons = new ArrayList<>();
         
@@ -78,9 +336,8 @@ public class ImprovedExpectimax {
             reasons.add("Maintains empty space");
         }
         
-        int maxTile = afterMove.getHighestTile();
-        if (isMaxTileInCorner(afterMove, maxTile)) {
-            reasons.add("Keeps " + maxTile + " in corner");
+        if (maxTileInCorner(afterMove) > 0) {
+            reasons.add("Keeps " + afterMove.getHighestTile() + " in corner");
         }
         
         double monotonicity = calculateMonotonicity(afterMove);
@@ -101,19 +358,13 @@ public class ImprovedExpectimax {
         
         for (int row = 0; row < size; row++) {
             for (int col = 0; col < size; col++) {
-                Tile current = board.getTile(row, col);
-                if (current != null) {
-                    if (col < size - 1) {
-                        Tile right = board.getTile(row, col + 1);
-                        if (right != null && right.getValue() == current.getValue()) {
-                            count++;
-                        }
+                int current = board.getExponent(row, col);
+                if (current != 0) {
+                    if (col < size - 1 && board.getExponent(row, col + 1) == current) {
+                        count++;
                     }
-                    if (row < size - 1) {
-                        Tile down = board.getTile(row + 1, col);
-                        if (down != null && down.getValue() == current.getValue()) {
-                            count++;
-                        }
+                    if (row < size - 1 && board.getExponent(row + 1, col) == current) {
+                        count++;
                     }
                 }
             }
@@ -121,21 +372,13 @@ public class ImprovedExpectimax {
         return count;
     }
     
-    private boolean isMaxTileInCorner(Board board, int maxValue) {
-        int size = board.getSize();
-        int[][] corners = {{0, 0}, {0, size-1}, {size-1, 0}, {size-1, size-1}};
-        
-        for (int[] corner : corners) {
-            Tile tile = board.getTile(corner[0], corner[1]);
-            if (tile != null && tile.getValue() == maxValue) {
-                return true;
-            }
-        }
-        return false;
-    }
-    
     public String getFormattedSuggestion() {
-        List<MoveEvaluation> topMoves = getTopMoves();
+        List<MoveEvaluation> topMoves;
+        try {
+            topMoves = getTopMoves();
+        } catch (CancellationException e) {
+            return "Suggestion cancelled";
+        }
         
         if (topMoves.isEmpty()) {
             return "No valid moves available!\nGame Over";
@@ -174,26 +417,55 @@ public class ImprovedExpectimax {
         return sb.toString();
     }
     
-    private double expectimax(Board board, int depth, boolean isMaxNode) {
-        if (depth == 0 || board.isGameOver()) {
+    // probability is the chance of the spawns on the path from the root to this node
+    private double expectimax(Board board, int depth, boolean isMaxNode, double probability) {
+        if (isOutOfTime()) {
+            return 0;
+        }
+        
+        if (depth == 0 || probability < probabilityThreshold) {
             return evaluateBoard(board);
         }
         
-        if (isMaxNode) {
-            return maxNode(board, depth);
-        } else {
-            return chanceNode(board, depth);
+        // A cached value may have been searched along a path of different probability,
+        // and so pruned differently; that small error is the price of sharing entries
+        if (table == null) {
+            return isMaxNode ? maxNode(board, depth, probability) : chanceNode(board, depth, probability);
+        }
+        double cached = table.probe(board, depth, isMaxNode);
+        if (!Double.isNaN(cached)) {
+            return cached;
+        }
+        
+        double value = isMaxNode ? maxNode(board, depth, probability) : chanceNode(board, depth, probability);
+        
+        // Values from an interrupted subtree are incomplete and must not be cached
+        if (!outOfTime) {
+            table.store(board, depth, isMaxNode, value);
         }
+        return value;
     }
     
-    private double maxNode(Board board, int depth) {
+    private boolean isOutOfTime() {
+        if (!outOfTime && (++nodeCount & DEADLINE_CHECK_MASK) == 0 && (cancelled || System.nanoTime() > deadlineNanos)) {
+            outOfTime = true;
+        }
+        return outOfTime;
+    }
+    
+    private double maxNode(Board board, int depth, double probability) {
+        int legalMoves = board.getLegalMoves();
+        if (legalMoves == 0) {
+            return evaluateBoard(board);
+        }
+        
         double maxScore = -1;
         
-        for (int direction : new int[]{Board.UP, Board.DOWN, Board.LEFT, Board.RIGHT}) {
-            Board clonedBoard = board.copy();
-            
-            if (clonedBoard.move(direction)) {
-                double score = expectimax(clonedBoard, depth - 1, false);
+        for (int direction = Board.UP; direction <= Board.RIGHT; direction++) {
+            if ((legalMoves & (1 << direction)) != 0) {
+                board.applyMove(direction);
+                double score = expectimax(board, depth - 1, false, probability);
+                board.undoMove();
                 maxScore = Math.max(maxScore, score);
             }
         }
@@ -201,23 +473,34 @@ public class ImprovedExpectimax {
         return maxScore == -1 ? evaluateBoard(board) : maxScore;
     }
     
-    private double chanceNode(Board board, int depth) {
+    private double chanceNode(Board board, int depth, double probability) {
+        int emptyCells = board.getEmptyCellCount();
+        if (emptyCells > samplingMinEmptyCells) {
+            return sampledChanceNode(board, depth, probability, null, 0);
+        }
+        
+        if (pool != null && depth >= PARALLEL_MIN_DEPTH && ForkJoinTask.inForkJoinPool()
+                && emptyCells >= parallelMinEmptyCells) {
+            return chanceNodeInParallel(board, depth, probability);
+        }
+        
         double totalScore = 0;
         int emptyCount = 0;
         int size = board.getSize();
+        double cellProbability = probability / emptyCells;
         
         for (int row = 0; row < size; row++) {
             for (int col = 0; col < size; col++) {
-                if (board.getTile(row, col) == null) {
+                if (board.getExponent(row, col) == 0) {
                     emptyCount++;
                     
-                    Board clonedBoard = board.copy();
-                    clonedBoard.setTile(row, col, new Tile(2));
-                    totalScore += 0.9 * expectimax(clonedBoard, depth - 1, true);
+                    board.placeTile(row, col, 1);
+                    totalScore += 0.9 * expectimax(board, depth - 1, true, cellProbability * 0.9);
                     
-                    clonedBoard = board.copy();
-                    clonedBoard.setTile(row, col, new Tile(4));
-                    totalScore += 0.1 * expectimax(clonedBoard, depth - 1, true);
+                    board.placeTile(row, col, 2);
+                    totalScore += 0.1 * expectimax(board, depth - 1, true, cellProbability * 0.1);
+                    
+                    board.removeTile(row, col);
                 }
             }
         }
@@ -225,103 +508,121 @@ public class ImprovedExpectimax {
         return emptyCount == 0 ? evaluateBoard(board) : totalScore / emptyCount;
     }
     
-    private double evaluateBoard(Board board) {
-        double score = 0;
+    private double chanceNodeInParallel(Board board, int depth, double probability) {
+        int[] cells = emptyCells(board);
+        int emptyCount = cells.length;
         
-        score += calculateMonotonicity(board) * MONOTONICITY_WEIGHT;
-        score += calculateSmoothness(board) * SMOOTHNESS_WEIGHT;
-        score += board.getEmptyCellCount() * EMPTY_WEIGHT;
-        score += maxTileInCorner(board) * MAX_TILE_WEIGHT;
+        double[] contributions = new double[2 * emptyCount];
+        new ChanceCellsTask(board, depth, probability, cells, 0, emptyCount, contributions).invoke();
         
-        return score;
+        double totalScore = 0;
+        for (double contribution : contributions) {
+            totalScore += contribution;
+        }
+        return totalScore / emptyCount;
     }
     
-    private double calculateMonotonicity(Board board) {
-        double score = 0;
+    // Estimates a chance node from one random cell per stratum of the empty cells. The
+    // standard error written to errors[slot] treats the samples as a simple random sample,
+    // which overstates the error of a stratified one.
+    private double sampledChanceNode(Board board, int depth, double probability, double[] errors, int slot) {
+        int[] cells = emptyCells(board);
+        int emptyCount = cells.length;
         int size = board.getSize();
-        
-        for (int row = 0; row < size; row++) {
-            int increasing = 0, decreasing = 0;
-            for (int col = 0; col < size - 1; col++) {
-                Tile current = board.getTile(row, col);
-                Tile next = board.getTile(row, col + 1);
-                
-                if (current != null && next != null) {
-                    if (current.getValue() <= next.getValue()) increasing++;
-                    if (current.getValue() >= next.getValue()) decreasing++;
-                }
-            }
-            score += Math.max(increasing, decreasing);
+        SplittableRandom random = new SplittableRandom(samplingSeed
+                ^ board.packedLo() * 0x9E3779B97F4A7C15L ^ board.packedHi() * 0xC2B2AE3D27D4EB4FL ^ depth);
+        
+        double estimate = 0;
+        double sum = 0;
+        double sumOfSquares = 0;
+        
+        for (int stratum = 0; stratum < chanceSamples; stratum++) {
+            int from = stratum * emptyCount / chanceSamples;
+            int to = (stratum + 1) * emptyCount / chanceSamples;
+            int cell = cells[from + random.nextInt(to - from)];
+            int row = cell / size;
+            int col = cell % size;
+            double weight = (double) (to - from) / emptyCount;
+            
+            board.placeTile(row, col, 1);
+            double value = 0.9 * expectimax(board, depth - 1, true, probability * weight * 0.9);
+            
+            board.placeTile(row, col, 2);
+            value += 0.1 * expectimax(board, depth - 1, true, probability * weight * 0.1);
+            
+            board.removeTile(row, col);
+            
+            estimate += weight * value;
+            sum += value;
+            sumOfSquares += value * value;
         }
         
-        for (int col = 0; col < size; col++) {
-            int increasing = 0, decreasing = 0;
-            for (int row = 0; row < size - 1; row++) {
-                Tile current = board.getTile(row, col);
-                Tile next = board.getTile(row + 1, col);
-                
-                if (current != null && next != null) {
-                    if (current.getValue() <= next.getValue()) increasing++;
-                    if (current.getValue() >= next.getValue()) decreasing++;
-                }
-            }
-            score += Math.max(increasing, decreasing);
+        if (errors != null) {
+            double mean = sum / chanceSamples;
+            double variance = Math.max(0, (sumOfSquares - chanceSamples * mean * mean) / (chanceSamples - 1));
+            double unsampledShare = 1 - (double) chanceSamples / emptyCount;
+            errors[slot] = Math.sqrt(variance * unsampledShare / chanceSamples);
         }
-        
-        return score;
+        return estimate;
     }
     
-    private double calculateSmoothness(Board board) {
-        double score = 0;
+    // Empty cells as row * size + col, in row order
+    private static int[] emptyCells(Board board) {
         int size = board.getSize();
+        int[] cells = new int[board.getEmptyCellCount()];
+        int count = 0;
         
         for (int row = 0; row < size; row++) {
             for (int col = 0; col < size; col++) {
-                Tile tile = board.getTile(row, col);
-                if (tile != null) {
-                    int value = tile.getValue();
-                    
-                    if (col < size - 1) {
-                        Tile right = board.getTile(row, col + 1);
-                        if (right != null) {
-                            score -= Math.abs(Math.log(value) / Math.log(2) - 
-                                            Math.log(right.getValue()) / Math.log(2));
-                        }
-                    }
-                    
-                    if (row < size - 1) {
-                        Tile down = board.getTile(row + 1, col);
-                        if (down != null) {
-                            score -= Math.abs(Math.log(value) / Math.log(2) - 
-                                            Math.log(down.getValue()) / Math.log(2));
-                        }
-                    }
+                if (board.getExponent(row, col) == 0) {
+                    cells[count++] = row * size + col;
                 }
             }
         }
+        return cells;
+    }
+    
+    private double evaluateBoard(Board board) {
+        int lines = lineHeuristics(board);
+        double score = 0;
+        
+        score += HeuristicTable.monotonicity(lines) * weights.monotonicity;
+        score -= HeuristicTable.roughness(lines) * weights.smoothness;
+        score += board.getEmptyCellCount() * weights.empty;
+        score += maxTileInCorner(board) * weights.maxTile;
         
         return score;
     }
     
-    private double maxTileInCorner(Board board) {
+    // Packed heuristic terms of every row and column, summed
+    private int lineHeuristics(Board board) {
+        int lines = 0;
         int size = board.getSize();
-        int maxValue = board.getHighestTile();
-        
-        boolean inCorner = false;
         
-        if (board.getTile(0, 0) != null && board.getTile(0, 0).getValue() == maxValue) {
-            inCorner = true;
-        }
-        if (board.getTile(0, size - 1) != null && board.getTile(0, size - 1).getValue() == maxValue) {
-            inCorner = true;
-        }
-        if (board.getTile(size - 1, 0) != null && board.getTile(size - 1, 0).getValue() == maxValue) {
-            inCorner = true;
+        for (int i = 0; i < size; i++) {
+            lines += HeuristicTable.lookup(board.rowLine(i));
+            lines += HeuristicTable.lookup(board.columnLine(i));
         }
-        if (board.getTile(size - 1, size - 1) != null && board.getTile(size - 1, size - 1).getValue() == maxValue) {
-            inCorner = true;
+        
+        return lines;
+    }
+    
+    private double calculateMonotonicity(Board board) {
+        return HeuristicTable.monotonicity(lineHeuristics(board));
+    }
+    
+    private double maxTileInCorner(Board board) {
+        int last = board.getSize() - 1;
+        int highest = board.getHighestExponent();
+        if (highest == 0) {
+            return 0;
         }
         
-        return inCorner ? maxValue : 0;
+        boolean inCorner = board.getExponent(0, 0) == highest
+                || board.getExponent(0, last) == highest
+                || board.getExponent(last, 0) == highest
+                || board.getExponent(last, last) == highest;
+        
+        return inCorner ? 1 << highest : 0;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,108 @@
+package game2048;
+
+// Picks moves for headless play. Advisors may keep state between moves (such as a search
+// cache), so each thread needs its own instance.
+public interface MoveAdvisor {
+    // Direction to play on the board, or -1 if there is no legal move
+    int chooseMove(Board board);
+
+    String getName();
+
+    // Fixed-depth expectimax with a transposition table kept across the game's moves
+    static MoveAdvisor expectimax(int depth) {
+        return expectimax(depth, HeuristicWeights.loaded());
+    }
+
+    static MoveAdvisor expectimax(int depth, HeuristicWeights weights) {
+        TranspositionTable table = new TranspositionTable(16);
+        return new MoveAdvisor() {
+            @Override
+            public int chooseMove(Board board) {
+                ImprovedExpectimax search = new ImprovedExpectimax(board, depth, table);
+                search.setWeights(weights);
+                var topMoves = search.getTopMoves();
+                return topMoves.isEmpty() ? -1 : topMoves.get(0).direction;
+            }
+
+            @Override
+            public String getName() {
+                return "expectimax depth " + depth;
+            }
+        };
+    }
+
+    // Iterative deepening within a time budget, like the game's suggestions, optionally with
+    // the game's chance-sampling settings. Results depend on the machine's speed.
+    static MoveAdvisor timed(long budgetMillis, boolean sampled, HeuristicWeights weights) {
+        TranspositionTable table = TranspositionTable.withMemoryBudget(GameSession.TABLE_MEMORY_BYTES);
+        return new MoveAdvisor() {
+            @Override
+            public int chooseMove(Board board) {
+                ImprovedExpectimax search = new ImprovedExpectimax(board, ImprovedExpectimax.SEARCH_DEPTH, table);
+                search.setWeights(weights);
+                if (sampled) {
+                    GameSession.enableChanceSampling(search);
+                }
+                var topMoves = search.getTopMoves(budgetMillis).moves;
+                return topMoves.isEmpty() ? -1 : topMoves.get(0).direction;
+            }
+
+            @Override
+            public String getName() {
+                return (sampled ? "sampled " : "") + "expectimax " + budgetMillis + " ms";
+            }
+        };
+    }
+
+    // One-ply greedy play on Suggestion's heuristic
+    static MoveAdvisor suggestion() {
+        return suggestion(HeuristicWeights.loaded());
+    }
+
+    static MoveAdvisor suggestion(HeuristicWeights weights) {
+        return new MoveAdvisor() {
+            @Override
+            public int chooseMove(Board board) {
+                return Suggestion.getBestDirection(board, weights);
+            }
+
+            @Override
+            public String getName() {
+                return "suggestion";
+            }
+        };
+    }
+
+    // Monte Carlo playouts on the calling thread, playouts per legal move
+    static MoveAdvisor rollout(int playouts, boolean greedy, long seed) {
+        RolloutAdvisor advisor = new RolloutAdvisor(seed);
+        advisor.setPlayouts(playouts);
+        advisor.setGreedy(greedy);
+        return advisor;
+    }
+
+    // "expectimax", "timed", "timed-sampled", "suggestion", "rollout" or "greedy-rollout";
+    // depth only applies to expectimax, the timed ones use the game's time budget
+    static MoveAdvisor byName(String name, int depth) {
+        return byName(name, depth, HeuristicWeights.loaded());
+    }
+
+    static MoveAdvisor byName(String name, int depth, HeuristicWeights weights) {
+        switch (name) {
+            case "expectimax":
+                return expectimax(depth, weights);
+            case "timed":
+                return timed(GameSession.SUGGESTION_TIME_BUDGET_MS, false, weights);
+            case "timed-sampled":
+                return timed(GameSession.SUGGESTION_TIME_BUDGET_MS, true, weights);
+            case "suggestion":
+                return suggestion(weights);
+            case "rollout":
+                return rollout(RolloutAdvisor.DEFAULT_PLAYOUTS, false, 1);
+            case "greedy-rollout":
+                return rollout(RolloutAdvisor.DEFAULT_PLAYOUTS, true, 1);
+            default:
+                throw new IllegalArgumentException("Unknown advisor: " + name);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package game2048;
+
+// Precomputed results of sliding one 5-cell line towards cell 0.
+// A line holds the low 4 bits of five exponents in bits 0-19 and their fifth bits in
+// bits 20-24. Lines whose tiles are all below 32768 have no fifth bits and index the
+// 2^20-entry table directly; lines with a 32768 or larger tile go through slideWide.
+// Each table entry packs the resulting line in bits 0-19 and the exponents of up to
+// two tiles created by merges in bits 20-23 and 24-27 (0 = no merge).
+final class MoveTable {
+    static final int CELLS = 5;
+    static final int CELL_BITS = 4;
+    static final int CELL_MASK = 0xF;
+    static final int LINE_BITS = CELLS * CELL_BITS;
+    static final int LINE_MASK = (1 << LINE_BITS) - 1;
+
+    // 2^30 is the largest tile an int holds, two of them do not merge
+    static final int MAX_EXPONENT = 30;
+
+    private static final int FIRST_MERGE_SHIFT = LINE_BITS;
+    private static final int SECOND_MERGE_SHIFT = LINE_BITS + CELL_BITS;
+
+    // slideWide entries: the resulting line in bits 0-24, then two 5-bit merge exponents
+    private static final int WIDE_LINE_MASK = (1 << (LINE_BITS + CELLS)) - 1;
+    private static final int WIDE_MERGE_SHIFT = LINE_BITS + CELLS;
+    private static final int WIDE_MERGE_MASK = 0x1F;
+
+    // Lowest bit of every cell of a line
+    private static final int LOW_CELL_BITS = 0x11111;
+
+    private MoveTable() {
+    }
+
+    // Built on first use by the class loader, which also makes it safe to share between threads
+    private static class Holder {
+        static final int[] LEFT = buildTable();
+    }
+
+    // Whether slideLeft can take the line: no fifth bits, and no 32768 whose merge would need one
+    static boolean inTable(int line) {
+        return (line >>> LINE_BITS) == 0 && (line & (line >>> 1) & (line >>> 2) & (line >>> 3) & LOW_CELL_BITS) == 0;
+    }
+
+    static int slideLeft(int line) {
+        return Holder.LEFT[line];
+    }
+
+    // Exponent of cell i of a line
+    static int exponent(int line, int i) {
+        return ((line >>> (i * CELL_BITS)) & CELL_MASK) | ((line >>> (LINE_BITS + i)) & 1) << CELL_BITS;
+    }
+
+    static int resultLine(int entry) {
+        return entry & LINE_MASK;
+    }
+
+    static int firstMerge(int entry) {
+        return (entry >>> FIRST_MERGE_SHIFT) & CELL_MASK;
+    }
+
+    static int secondMerge(int entry) {
+        return (entry >>> SECOND_MERGE_SHIFT) & CELL_MASK;
+    }
+
+    static int scoreGained(int entry) {
+        int first = firstMerge(entry);
+        int second = secondMerge(entry);
+        return (first == 0 ? 0 : 1 << first) + (second == 0 ? 0 : 1 << second);
+    }
+
+    static boolean createsExponent(int entry, int exponent) {
+        return firstMerge(entry) == exponent || secondMerge(entry) == exponent;
+    }
+
+    // Mirrors the first `cells` cells of a line, cells past that stay empty
+    static int reverse(int line, int cells) {
+        int reversed = ((line & 0xF) << 16) | ((line & 0xF0) << 8) | (line & 0xF00)
+                     | ((line >>> 8) & 0xF0) | ((line >>> 16) & 0xF);
+        reversed >>>= (CELLS - cells) * CELL_BITS;
+
+        int fifthBits = line >>> LINE_BITS;
+        if (fifthBits != 0) {
+            reversed |= (Integer.reverse(fifthBits) >>> (Integer.SIZE - cells)) << LINE_BITS;
+        }
+        return reversed;
+    }
+
+    // Slides any line, including ones inTable rejects, cell by cell. The entry packs the
+    // result and the merges like a table entry, with 5-bit fields.
+    static long slideWide(int line) {
+        int result = 0;
+        int writePos = 0;
+        int mergeable = 0;
+        long merges = 0;
+        int mergeShift = WIDE_MERGE_SHIFT;
+
+        for (int i = 0; i < CELLS; i++) {
+            int exponent = exponent(line, i);
+            if (exponent == 0) {
+                continue;
+            }
+
+            if (exponent == mergeable && exponent < MAX_EXPONENT) {
+                result = withExponent(result, writePos - 1, exponent + 1);
+                merges |= (long) (exponent + 1) << mergeShift;
+                mergeShift += CELLS;
+                mergeable = 0;
+            } else {
+                result = withExponent(result, writePos, exponent);
+                mergeable = exponent;
+                writePos++;
+            }
+        }
+
+        return result | merges;
+    }
+
+    static int wideResultLine(long entry) {
+        return (int) entry & WIDE_LINE_MASK;
+    }
+
+    static int wideFirstMerge(long entry) {
+        return (int) (entry >>> WIDE_MERGE_SHIFT) & WIDE_MERGE_MASK;
+    }
+
+    static int wideSecondMerge(long entry) {
+        return (int) (entry >>> (WIDE_MERGE_SHIFT + CELLS)) & WIDE_MERGE_MASK;
+    }
+
+    // The line with cell i set to the exponent
+    static int withExponent(int line, int i, int exponent) {
+        int nibbleShift = i * CELL_BITS;
+        int fifthBit = LINE_BITS + i;
+        line &= ~((CELL_MASK << nibbleShift) | (1 << fifthBit));
+        return line | (exponent & CELL_MASK) << nibbleShift | (exponent >>> CELL_BITS) << fifthBit;
+    }
+
+    private static int[] buildTable() {
+        int[] table = new int[1 << LINE_BITS];
+        for (int line = 0; line < table.length; line++) {
+            table[line] = slide(line);
+        }
+        return table;
+    }
+
+    private static int slide(int line) {
+        int result = 0;
+        int writePos = 0;
+        int mergeable = 0;
+        int merges = 0;
+        int mergeShift = FIRST_MERGE_SHIFT;
+
+        for (int i = 0; i < CELLS; i++) {
+            int exponent = (line >>> (i * CELL_BITS)) & CELL_MASK;
+            if (exponent == 0) {
+                continue;
+            }
+
+            // Entries for lines with a 15 are never read, see inTable
+            if (exponent == mergeable && exponent < CELL_MASK) {
+                result += 1 << ((writePos - 1) * CELL_BITS);
+                merges |= (exponent + 1) << mergeShift;
+                mergeShift += CELL_BITS;
+                mergeable = 0;
+            } else {
+                result |= exponent << (writePos * CELL_BITS);
+                mergeable = exponent;
+                writePos++;
+            }
+        }
+
+        return result | merges;
+    }
+}
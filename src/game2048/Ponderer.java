@@ -0,0 +1,152 @@
+package game2048;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+// Searches ahead while the player thinks. Once a suggestion is shown, the positions that can
+// follow the suggested move are searched on a background thread, likelier spawns first, so
+// the next suggestion is usually ready (or already under way) when it is asked for.
+final class Ponderer {
+    private final Function<Board, ImprovedExpectimax> searchFactory;
+    private final long timeBudgetMillis;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "suggestion-ponder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Guarded by this; round changes whenever pondered work stops being useful
+    private final Map<PositionKey, CompletableFuture<List<ImprovedExpectimax.MoveEvaluation>>> results = new HashMap<>();
+    private int round;
+    private int ponderedDirection = -1;
+    private ImprovedExpectimax current;
+    private PositionKey currentKey;
+
+    Ponderer(Function<Board, ImprovedExpectimax> searchFactory, long timeBudgetMillis) {
+        this.searchFactory = searchFactory;
+        this.timeBudgetMillis = timeBudgetMillis;
+    }
+
+    // Starts pondering the replies to `direction` played on the board; the board is copied
+    synchronized void ponder(Board board, int direction) {
+        cancel();
+
+        Board afterMove = board.copy();
+        if (!afterMove.move(direction)) {
+            return;
+        }
+
+        int ponderRound = round;
+        ponderedDirection = direction;
+        executor.execute(() -> run(afterMove, ponderRound));
+    }
+
+    // Keeps pondering only if the player followed the suggestion
+    synchronized void moveMade(int direction) {
+        if (direction != ponderedDirection) {
+            cancel();
+        }
+    }
+
+    // Top moves for the position if it was pondered, waiting for a search still running on it;
+    // null if it was not. Either way the rest of the pondered positions are dropped.
+    List<ImprovedExpectimax.MoveEvaluation> take(Board board) {
+        PositionKey key = new PositionKey(board);
+        CompletableFuture<List<ImprovedExpectimax.MoveEvaluation>> pending;
+
+        synchronized (this) {
+            pending = results.get(key);
+            ImprovedExpectimax keep = key.equals(currentKey) ? current : null;
+            stop(keep);
+        }
+        return pending == null ? null : pending.join();
+    }
+
+    synchronized void cancel() {
+        stop(null);
+    }
+
+    void shutdown() {
+        cancel();
+        executor.shutdownNow();
+    }
+
+    private void stop(ImprovedExpectimax keep) {
+        round++;
+        ponderedDirection = -1;
+        results.clear();
+        if (current != null && current != keep) {
+            current.cancel();
+        }
+    }
+
+    private void run(Board afterMove, int ponderRound) {
+        int size = afterMove.getSize();
+
+        // A 2 spawns nine times as often as a 4
+        for (int exponent = 1; exponent <= 2; exponent++) {
+            for (int row = 0; row < size; row++) {
+                for (int col = 0; col < size; col++) {
+                    if (afterMove.getExponent(row, col) != 0) {
+                        continue;
+                    }
+
+                    Board position = afterMove.copy();
+                    position.placeTile(row, col, exponent);
+                    PositionKey key = new PositionKey(position);
+                    ImprovedExpectimax search = searchFactory.apply(position);
+                    CompletableFuture<List<ImprovedExpectimax.MoveEvaluation>> future = new CompletableFuture<>();
+
+                    synchronized (this) {
+                        if (round != ponderRound) {
+                            return;
+                        }
+                        results.put(key, future);
+                        current = search;
+                        currentKey = key;
+                    }
+
+                    // The future is completed on every path, or take() would wait for it forever;
+                    // null sends the caller to a search of its own
+                    List<ImprovedExpectimax.MoveEvaluation> moves = null;
+                    try {
+                        moves = search.getTopMoves(timeBudgetMillis).moves;
+                    } catch (RuntimeException e) {
+                        e.printStackTrace();
+                    } finally {
+                        synchronized (this) {
+                            current = null;
+                            currentKey = null;
+                        }
+                        future.complete(search.isCancelled() ? null : moves);
+                    }
+                }
+            }
+        }
+    }
+
+    // Search results depend only on the grid, not on score or spawn source
+    private static final class PositionKey {
+        private final long lo;
+        private final long hi;
+
+        PositionKey(Board board) {
+            this.lo = board.packedLo();
+            this.hi = board.packedHi();
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof PositionKey
+                    && ((PositionKey) other).lo == lo && ((PositionKey) other).hi == hi;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(lo * 31 + hi);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package game2048;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+// Spawns from a SplitMix64 generator owned by one board. Seeding it makes a game replayable
+// from the seed alone, and split() hands out independent streams for parallel games.
+// The generator is java.util.SplittableRandom's, spelled out so that its whole state is two
+// longs that getState() can save; a seed gives the same spawns as SplittableRandom(seed).
+public class RandomSpawnSource implements SpawnSource {
+    private static final double TWO_PROBABILITY = 0.9;
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    private static final double DOUBLE_UNIT = 0x1.0p-53;
+
+    private long seed;
+    private final long gamma;
+
+    public RandomSpawnSource() {
+        this(ThreadLocalRandom.current().nextLong());
+    }
+
+    public RandomSpawnSource(long seed) {
+        this(seed, GOLDEN_GAMMA);
+    }
+
+    private RandomSpawnSource(long seed, long gamma) {
+        this.seed = seed;
+        this.gamma = gamma;
+    }
+
+    // A source that continues exactly where the one getState() was called on stood
+    public static RandomSpawnSource fromState(long[] state) {
+        return new RandomSpawnSource(state[0], state[1]);
+    }
+
+    public long[] getState() {
+        return new long[]{seed, gamma};
+    }
+
+    @Override
+    public int nextCell(int emptyCount) {
+        int r = mix32(nextSeed());
+        int m = emptyCount - 1;
+        if ((emptyCount & m) == 0) {
+            return r & m;
+        }
+        // Rejects the top partial range so every cell is equally likely
+        for (int u = r >>> 1; u + m - (r = u % emptyCount) < 0; u = mix32(nextSeed()) >>> 1) {
+        }
+        return r;
+    }
+
+    @Override
+    public int nextExponent() {
+        return (mix64(nextSeed()) >>> 11) * DOUBLE_UNIT < TWO_PROBABILITY ? 1 : 2;
+    }
+
+    public RandomSpawnSource split() {
+        return new RandomSpawnSource(mix64(nextSeed()), mixGamma(nextSeed()));
+    }
+
+    private long nextSeed() {
+        return seed += gamma;
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static int mix32(long z) {
+        z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+        return (int) (((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+    }
+
+    // Odd, and with enough bit transitions to give a well-mixed stream
+    private static long mixGamma(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        z = (z ^ (z >>> 33)) | 1L;
+        int n = Long.bitCount(z ^ (z >>> 1));
+        return (n < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+    }
+}
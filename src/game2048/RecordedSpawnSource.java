@@ -0,0 +1,59 @@
+package game2048;
+
+import java.util.Arrays;
+
+// Records the spawns another source produces, or replays a recorded stream so a game
+// can be reproduced exactly. The stream is the cell index followed by the exponent of each spawn.
+public class RecordedSpawnSource implements SpawnSource {
+    private final SpawnSource source;
+    private int[] spawns;
+    private int position;
+
+    private RecordedSpawnSource(SpawnSource source, int[] spawns, int position) {
+        this.source = source;
+        this.spawns = spawns;
+        this.position = position;
+    }
+
+    public static RecordedSpawnSource recording(SpawnSource source) {
+        return new RecordedSpawnSource(source, new int[64], 0);
+    }
+
+    public static RecordedSpawnSource replaying(int[] spawns) {
+        return new RecordedSpawnSource(null, spawns.clone(), 0);
+    }
+
+    @Override
+    public int nextCell(int emptyCount) {
+        int cell = next(source == null ? 0 : source.nextCell(emptyCount));
+        if (cell >= emptyCount) {
+            throw new IllegalStateException("Recorded spawn cell " + cell + " does not fit " + emptyCount + " empty cells");
+        }
+        return cell;
+    }
+
+    @Override
+    public int nextExponent() {
+        return next(source == null ? 0 : source.nextExponent());
+    }
+
+    // Spawns recorded so far, or the whole stream when replaying
+    public int[] getSpawns() {
+        return Arrays.copyOf(spawns, source == null ? spawns.length : position);
+    }
+
+    private int next(int generated) {
+        if (source == null) {
+            if (position == spawns.length) {
+                throw new IllegalStateException("Recorded spawn stream is exhausted");
+            }
+            return spawns[position++];
+        }
+
+        if (position == spawns.length) {
+            spawns = Arrays.copyOf(spawns, spawns.length * 2);
+        }
+        spawns[position++] = generated;
+        return generated;
+    }
+}
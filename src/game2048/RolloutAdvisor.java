@@ -0,0 +1,229 @@
+package game2048;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Pure Monte Carlo move choice: after each legal move, plays many games to the end with
+// random (or greedy) moves and picks the move whose playouts reach the best average final
+// score. It needs no heuristic and its cost grows with the playout count, not with the
+// number of empty cells, so it stays cheap in the open 5x5 game where expectimax is not.
+//
+// Playouts run in batches. Each batch draws its moves and spawns from a seed derived from
+// the advisor's seed, the position, the direction and the batch number, so a fixed playout
+// budget gives the same answer on any number of threads.
+public class RolloutAdvisor implements MoveAdvisor {
+    public static final int DEFAULT_PLAYOUTS = 1000;
+
+    // Playouts per task
+    private static final int BATCH_PLAYOUTS = 50;
+
+    private static final String[] DIRECTION_NAMES = {"UP ↑", "DOWN ↓", "LEFT ←", "RIGHT →"};
+
+    private final long seed;
+    private int playouts = DEFAULT_PLAYOUTS;
+    private long timeBudgetMillis;
+    private boolean greedy;
+    private ForkJoinPool pool;
+
+    public RolloutAdvisor(long seed) {
+        this.seed = seed;
+    }
+
+    // Playouts per legal move; rounded up to whole batches
+    public void setPlayouts(int playouts) {
+        this.playouts = Math.max(1, playouts);
+        this.timeBudgetMillis = 0;
+    }
+
+    // Instead of a fixed count, plays rounds of playouts for every move until the budget is
+    // spent. At least one round always completes. Results then depend on the machine.
+    public void setTimeBudget(long millis) {
+        this.timeBudgetMillis = Math.max(1, millis);
+    }
+
+    // Greedy playouts take the move with the highest immediate score instead of a random one:
+    // about four times slower per playout, but much closer to real play
+    public void setGreedy(boolean greedy) {
+        this.greedy = greedy;
+    }
+
+    // Runs the batches on the pool; null plays them on the calling thread
+    public void setParallelism(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public int chooseMove(Board board) {
+        List<ImprovedExpectimax.MoveEvaluation> moves = evaluate(board);
+        return moves.isEmpty() ? -1 : moves.get(0).direction;
+    }
+
+    @Override
+    public String getName() {
+        String budget = timeBudgetMillis > 0 ? timeBudgetMillis + " ms" : playouts + " playouts";
+        return (greedy ? "greedy" : "random") + " rollouts, " + budget;
+    }
+
+    // Every legal move, best first, scored by the mean final score of its playouts, with the
+    // standard error of that mean
+    public List<ImprovedExpectimax.MoveEvaluation> evaluate(Board board) {
+        int legalMoves = board.getLegalMoves();
+        List<Integer> directions = new ArrayList<>();
+        for (int direction = Board.UP; direction <= Board.RIGHT; direction++) {
+            if ((legalMoves & (1 << direction)) != 0) {
+                directions.add(direction);
+            }
+        }
+        if (directions.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // Per direction: playouts, sum and sum of squares of the final scores
+        long[] counts = new long[4];
+        double[] sums = new double[4];
+        double[] squares = new double[4];
+
+        if (timeBudgetMillis > 0) {
+            // A round gives every worker at least one batch
+            long deadline = System.nanoTime() + timeBudgetMillis * 1_000_000L;
+            int round = pool == null ? 1 : (pool.getParallelism() + directions.size() - 1) / directions.size();
+            int batch = 0;
+            do {
+                runBatches(board, directions, batch, batch + round, counts, sums, squares);
+                batch += round;
+            } while (System.nanoTime() < deadline);
+        } else {
+            int batches = (playouts + BATCH_PLAYOUTS - 1) / BATCH_PLAYOUTS;
+            runBatches(board, directions, 0, batches, counts, sums, squares);
+        }
+
+        List<ImprovedExpectimax.MoveEvaluation> evaluations = new ArrayList<>();
+        for (int direction : directions) {
+            double mean = sums[direction] / counts[direction];
+            double variance = Math.max(0, squares[direction] / counts[direction] - mean * mean);
+            ImprovedExpectimax.MoveEvaluation evaluation = new ImprovedExpectimax.MoveEvaluation(
+                direction, mean, DIRECTION_NAMES[direction],
+                counts[direction] + " playouts, average final score " + Math.round(mean));
+            evaluation.error = Math.sqrt(variance / counts[direction]);
+            evaluations.add(evaluation);
+        }
+        Collections.sort(evaluations);
+        return evaluations;
+    }
+
+    // Batches [from, to) of every direction, in parallel when a pool is set; the totals are
+    // added up in a fixed order so the result does not depend on scheduling
+    private void runBatches(Board board, List<Integer> directions, int from, int to,
+                            long[] counts, double[] sums, double[] squares) {
+        List<BatchTask> tasks = new ArrayList<>();
+        for (int direction : directions) {
+            for (int batch = from; batch < to; batch++) {
+                tasks.add(new BatchTask(board, direction, batch));
+            }
+        }
+
+        if (pool != null) {
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(tasks);
+                }
+            });
+        } else {
+            for (BatchTask task : tasks) {
+                task.compute();
+            }
+        }
+
+        for (BatchTask task : tasks) {
+            counts[task.direction] += BATCH_PLAYOUTS;
+            sums[task.direction] += task.sum;
+            squares[task.direction] += task.squares;
+        }
+    }
+
+    // One batch of playouts after one root move
+    private class BatchTask extends RecursiveAction {
+        private final Board board;
+        private final int direction;
+        private final int batch;
+        double sum;
+        double squares;
+
+        BatchTask(Board board, int direction, int batch) {
+            this.board = board;
+            this.direction = direction;
+            this.batch = batch;
+        }
+
+        @Override
+        protected void compute() {
+            SplittableRandom random = new SplittableRandom(batchSeed(board, direction, batch));
+            for (int i = 0; i < BATCH_PLAYOUTS; i++) {
+                Board playout = board.copy();
+                playout.setSpawnSource(new RandomSpawnSource(random.nextLong()));
+                playout.move(direction);
+                playout.addRandomTile();
+
+                double score = greedy ? playGreedy(playout, random) : playRandom(playout, random);
+                sum += score;
+                squares += score * score;
+            }
+        }
+    }
+
+    // Final score of a game finished with uniformly random legal moves
+    private static int playRandom(Board board, SplittableRandom random) {
+        int legalMoves;
+        while ((legalMoves = board.getLegalMoves()) != 0) {
+            // Pick one of the set bits of the legal-move mask
+            for (int skip = random.nextInt(Integer.bitCount(legalMoves)); skip > 0; skip--) {
+                legalMoves &= legalMoves - 1;
+            }
+            board.move(Integer.numberOfTrailingZeros(legalMoves));
+            board.addRandomTile();
+        }
+        return board.getScore();
+    }
+
+    // Final score of a game finished by always taking the move that scores the most now,
+    // breaking ties at random
+    private static int playGreedy(Board board, SplittableRandom random) {
+        int legalMoves;
+        while ((legalMoves = board.getLegalMoves()) != 0) {
+            int bestDirection = -1;
+            int bestGain = -1;
+            int ties = 0;
+            for (int direction = Board.UP; direction <= Board.RIGHT; direction++) {
+                if ((legalMoves & (1 << direction)) == 0) {
+                    continue;
+                }
+                int before = board.getScore();
+                board.applyMove(direction);
+                int gain = board.getScore() - before;
+                board.undoMove();
+
+                if (gain > bestGain) {
+                    bestGain = gain;
+                    bestDirection = direction;
+                    ties = 1;
+                } else if (gain == bestGain && random.nextInt(++ties) == 0) {
+                    bestDirection = direction;
+                }
+            }
+            board.move(bestDirection);
+            board.addRandomTile();
+        }
+        return board.getScore();
+    }
+
+    private long batchSeed(Board board, int direction, int batch) {
+        long hash = seed;
+        hash = hash * 0x9E3779B97F4A7C15L + board.packedLo();
+        hash = hash * 0x9E3779B97F4A7C15L + board.packedHi();
+        hash = hash * 0x9E3779B97F4A7C15L + direction;
+        hash = hash * 0x9E3779B97F4A7C15L + batch;
+        return hash;
+    }
+}
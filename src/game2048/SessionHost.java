@@ -0,0 +1,228 @@
+package game2048;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Runs many headless GameSessions in one JVM. Every session is a small actor: a bounded
+// mailbox of move commands drained by at most one task at a time on a shared executor,
+// so thousands of sessions share a handful of threads. Sessions left idle are evicted
+// to their compact state and restored on their next command.
+public class SessionHost {
+    public static final int MAILBOX_CAPACITY = 32;
+
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+    private final ScheduledExecutorService evictionTimer;
+    private final long idleTimeoutNanos;
+    private final ConcurrentHashMap<Long, SessionActor> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong nextSessionId = new AtomicLong();
+    private final LongAdder totalMoves = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final long startNanos = System.nanoTime();
+
+    // Throughput window for getMovesPerSecond
+    private long windowStartNanos = startNanos;
+    private long windowStartMoves = 0;
+
+    public SessionHost(long idleTimeoutMillis) {
+        this(Executors.newWorkStealingPool(), true, idleTimeoutMillis);
+    }
+
+    // The executor runs the actors; any executor works, including a virtual-thread-per-task
+    // executor on JDKs that have one. It is not shut down by this host.
+    public SessionHost(ExecutorService executor, long idleTimeoutMillis) {
+        this(executor, false, idleTimeoutMillis);
+    }
+
+    private SessionHost(ExecutorService executor, boolean ownsExecutor, long idleTimeoutMillis) {
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        this.evictionTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "session-eviction");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long sweepMillis = Math.max(1, idleTimeoutMillis / 2);
+        evictionTimer.scheduleWithFixedDelay(this::evictIdleSessions, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public long createSession() {
+        return createSession(new RandomSpawnSource());
+    }
+
+    // Only a RandomSpawnSource: its state is two longs, so an evicted session keeps nothing
+    // else alive, where a recorded or scripted source would have to be held as is
+    public long createSession(RandomSpawnSource spawnSource) {
+        long id = nextSessionId.incrementAndGet();
+        sessions.put(id, new SessionActor(new GameSession(spawnSource)));
+        return id;
+    }
+
+    // Queues a move for the session; false if the session is unknown or its mailbox is full
+    public boolean submitMove(long sessionId, int direction) {
+        SessionActor actor = sessions.get(sessionId);
+        return actor != null && actor.offer(direction);
+    }
+
+    public void closeSession(long sessionId) {
+        sessions.remove(sessionId);
+    }
+
+    // {score, 1 if finished else 0} for a session, null if unknown; may lag queued moves
+    public int[] getStatus(long sessionId) {
+        SessionActor actor = sessions.get(sessionId);
+        return actor == null ? null : actor.status();
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    public int getEvictedSessionCount() {
+        int count = 0;
+        for (SessionActor actor : sessions.values()) {
+            if (actor.isEvicted()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public long getTotalMoves() {
+        return totalMoves.sum();
+    }
+
+    // Moves per second across all sessions since the previous call (or since start)
+    public synchronized double getMovesPerSecond() {
+        long now = System.nanoTime();
+        long moves = totalMoves.sum();
+        double seconds = (now - windowStartNanos) / 1e9;
+        double rate = seconds > 0 ? (moves - windowStartMoves) / seconds : 0;
+        windowStartNanos = now;
+        windowStartMoves = moves;
+        return rate;
+    }
+
+    public void evictIdleSessions() {
+        long now = System.nanoTime();
+        for (SessionActor actor : sessions.values()) {
+            if (actor.evictIfIdle(now)) {
+                evictions.increment();
+            }
+        }
+    }
+
+    public void shutdown() {
+        evictionTimer.shutdownNow();
+        if (ownsExecutor) {
+            executor.shutdown();
+        }
+    }
+
+    private final class SessionActor implements Runnable {
+        // Guarded by this
+        private final int[] mailbox = new int[MAILBOX_CAPACITY];
+        private int head;
+        private int count;
+        private boolean scheduled;
+        private GameSession session;
+        private byte[] evictedState;
+        private long[] evictedSpawnState;
+
+        private volatile long lastActiveNanos = System.nanoTime();
+
+        SessionActor(GameSession session) {
+            this.session = session;
+        }
+
+        boolean offer(int direction) {
+            synchronized (this) {
+                if (count == mailbox.length) {
+                    return false;
+                }
+                mailbox[(head + count) % mailbox.length] = direction;
+                count++;
+                lastActiveNanos = System.nanoTime();
+
+                if (scheduled) {
+                    return true;
+                }
+                scheduled = true;
+            }
+
+            executor.execute(this);
+            return true;
+        }
+
+        // Only one run() is active per actor, guarded by the scheduled flag
+        @Override
+        public void run() {
+            while (true) {
+                int direction;
+                GameSession current;
+                synchronized (this) {
+                    if (count == 0) {
+                        scheduled = false;
+                        return;
+                    }
+                    direction = mailbox[head];
+                    head = (head + 1) % mailbox.length;
+                    count--;
+
+                    if (session == null) {
+                        restore();
+                    }
+                    current = session;
+                }
+
+                if (current.makeMove(direction)) {
+                    totalMoves.increment();
+                }
+                lastActiveNanos = System.nanoTime();
+            }
+        }
+
+        // Read straight from the compact state of an evicted session, so polling the status
+        // of idle games neither restores them nor keeps them resident
+        synchronized int[] status() {
+            GameSession current = session;
+            if (current == null) {
+                return new int[]{GameSession.compactScore(evictedState), GameSession.compactFinished(evictedState) ? 1 : 0};
+            }
+            return new int[]{current.getScore(), current.isFinished() ? 1 : 0};
+        }
+
+        synchronized boolean isEvicted() {
+            return session == null;
+        }
+
+        synchronized boolean evictIfIdle(long now) {
+            if (scheduled || session == null || now - lastActiveNanos < idleTimeoutNanos) {
+                return false;
+            }
+            // A source swapped in through the board cannot be saved, so that session stays resident
+            SpawnSource spawnSource = session.getBoard().getSpawnSource();
+            if (!(spawnSource instanceof RandomSpawnSource)) {
+                return false;
+            }
+
+            evictedState = session.toCompactState();
+            evictedSpawnState = ((RandomSpawnSource) spawnSource).getState();
+            session = null;
+            return true;
+        }
+
+        private void restore() {
+            session = GameSession.fromCompactState(evictedState, RandomSpawnSource.fromState(evictedSpawnState));
+            evictedState = null;
+            evictedSpawnState = null;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package game2048;
+
+// Decides where Board.addRandomTile puts the next tile and what it is.
+// Every board owns one, so boards on different threads never contend for a shared Random.
+public interface SpawnSource {
+    // Index of the empty cell to fill, from 0 to emptyCount - 1 in row-major order
+    int nextCell(int emptyCount);
+
+    // Exponent of the new tile: 1 (a 2) nine times out of ten, otherwise 2 (a 4)
+    int nextExponent();
+}
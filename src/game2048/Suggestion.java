@@ -3,7 +3,8 @@ package game2048;
 public class Suggestion {
     
     public static String getBestMove(Board board) {
-        if (board == null || board.isGameOver()) {
+        int legalMoves = board == null ? 0 : board.getLegalMoves();
+        if (legalMoves == 0) {
             return "No moves available - Game Over!";
         }
         
@@ -12,10 +13,10 @@ public class Suggestion {
         String[] directionNames = {"UP ", "DOWN ", "LEFT ", "RIGHT "};
         
         for (int direction = 0; direction < 4; direction++) {
-            Board testBoard = board.copy();
-            
-            if (testBoard.move(direction)) {
-                int moveScore = evaluateBoard(testBoard);
+            if ((legalMoves & (1 << direction)) != 0) {
+                Board testBoard = board.copy();
+                testBoard.move(direction);
+                int moveScore = evaluateBoard(testBoard, HeuristicWeights.loaded());
                 
                 if (moveScore > bestScore) {
                     bestScore = moveScore;
@@ -32,22 +33,50 @@ public class Suggestion {
                " (Score potential: " + bestScore + ")";
     }
     
-    private static int evaluateBoard(Board board) {
-        int score = 0;
+    // Direction with the best heuristic score after the move, or -1 if no move is legal.
+    // Unlike getBestMove it also picks a move when every score is negative.
+    public static int getBestDirection(Board board) {
+        return getBestDirection(board, HeuristicWeights.loaded());
+    }
+    
+    public static int getBestDirection(Board board, HeuristicWeights weights) {
+        int legalMoves = board.getLegalMoves();
+        int bestDirection = -1;
+        int bestScore = Integer.MIN_VALUE;
+        
+        for (int direction = 0; direction < 4; direction++) {
+            if ((legalMoves & (1 << direction)) != 0) {
+                Board testBoard = board.copy();
+                testBoard.move(direction);
+                int moveScore = evaluateBoard(testBoard, weights);
+                
+                if (moveScore > bestScore) {
+                    bestScore = moveScore;
+                    bestDirection = direction;
+                }
+            }
+        }
         
-        score += board.getScore() * 2;
+        return bestDirection;
+    }
+    
+    private static int evaluateBoard(Board board, HeuristicWeights weights) {
+        double score = 0;
         
-        score += board.getEmptyCellCount() * 100;
+        score += board.getScore() * weights.suggestionScore;
         
-        score += board.getHighestTile() * 10;
+        score += board.getEmptyCellCount() * weights.suggestionEmpty;
         
-        score += evaluateMonotonicity(board) * 50;
+        score += board.getHighestTile() * weights.suggestionHighestTile;
         
-        score += evaluateSmoothness(board) * 30;
+        score += evaluateMonotonicity(board) * weights.suggestionMonotonicity;
         
-        score += evaluateCornerStrategy(board) * 80;
+        score += evaluateSmoothness(board) * weights.suggestionSmoothness;
         
-        return score;
+        score += evaluateCornerStrategy(board) * weights.suggestionCorner;
+        
+        // Whole numbers with the default weights, as before
+        return (int) Math.round(score);
     }
     
     private static int evaluateMonotonicity(Board board) {
@@ -59,14 +88,14 @@ public class Suggestion {
             boolean decreasing = true;
             
             for (int col = 0; col < size - 1; col++) {
-                Tile current = board.getTile(row, col);
-                Tile next = board.getTile(row, col + 1);
+                int current = board.getExponent(row, col);
+                int next = board.getExponent(row, col + 1);
                 
-                if (current != null && next != null) {
-                    if (current.getValue() > next.getValue()) {
+                if (current != 0 && next != 0) {
+                    if (current > next) {
                         increasing = false;
                     }
-                    if (current.getValue() < next.getValue()) {
+                    if (current < next) {
                         decreasing = false;
                     }
                 }
@@ -80,14 +109,14 @@ public class Suggestion {
             boolean decreasing = true;
             
             for (int row = 0; row < size - 1; row++) {
-                Tile current = board.getTile(row, col);
-                Tile next = board.getTile(row + 1, col);
+                int current = board.getExponent(row, col);
+                int next = board.getExponent(row + 1, col);
                 
-                if (current != null && next != null) {
-                    if (current.getValue() > next.getValue()) {
+                if (current != 0 && next != 0) {
+                    if (current > next) {
                         increasing = false;
                     }
-                    if (current.getValue() < next.getValue()) {
+                    if (current < next) {
                         decreasing = false;
                     }
                 }
@@ -105,22 +134,22 @@ public class Suggestion {
         
         for (int row = 0; row < size; row++) {
             for (int col = 0; col < size; col++) {
-                Tile current = board.getTile(row, col);
-                if (current != null) {
-                    int value = current.getValue();
+                int current = board.getExponent(row, col);
+                if (current != 0) {
+                    int value = 1 << current;
                     
                     if (col < size - 1) {
-                        Tile right = board.getTile(row, col + 1);
-                        if (right != null) {
-                            int diff = Math.abs(value - right.getValue());
+                        int right = board.getExponent(row, col + 1);
+                        if (right != 0) {
+                            int diff = Math.abs(value - (1 << right));
                             smoothness -= diff;
                         }
                     }
                     
                     if (row < size - 1) {
-                        Tile down = board.getTile(row + 1, col);
-                        if (down != null) {
-                            int diff = Math.abs(value - down.getValue());
+                        int down = board.getExponent(row + 1, col);
+                        if (down != 0) {
+                            int diff = Math.abs(value - (1 << down));
                             smoothness -= diff;
                         }
                     }
@@ -134,29 +163,29 @@ public class Suggestion {
     private static int evaluateCornerStrategy(Board board) {
         int score = 0;
         int size = board.getSize();
-        int highestValue = board.getHighestTile();
+        int highestExponent = board.getHighestExponent();
         
         int[][] corners = {{0, 0}, {0, size-1}, {size-1, 0}, {size-1, size-1}};
         
         for (int[] corner : corners) {
-            Tile tile = board.getTile(corner[0], corner[1]);
-            if (tile != null && tile.getValue() == highestValue) {
+            int exponent = board.getExponent(corner[0], corner[1]);
+            if (exponent != 0 && exponent == highestExponent) {
                 score += 100;
                 
                 if (corner[0] == 0 || corner[0] == size - 1) {
                     for (int col = 0; col < size; col++) {
-                        Tile edgeTile = board.getTile(corner[0], col);
-                        if (edgeTile != null) {
-                            score += edgeTile.getValue() / 10;
+                        int edge = board.getExponent(corner[0], col);
+                        if (edge != 0) {
+                            score += (1 << edge) / 10;
                         }
                     }
                 }
                 
                 if (corner[1] == 0 || corner[1] == size - 1) {
                     for (int row = 0; row < size; row++) {
-                        Tile edgeTile = board.getTile(row, corner[1]);
-                        if (edgeTile != null) {
-                            score += edgeTile.getValue() / 10;
+                        int edge = board.getExponent(row, corner[1]);
+                        if (edge != 0) {
+                            score += (1 << edge) / 10;
                         }
                     }
                 }
@@ -170,14 +199,14 @@ public class Suggestion {
     
     public static int[] findHighestTilePosition(Board board) {
         int size = board.getSize();
-        int maxValue = 0;
+        int maxExponent = 0;
         int[] position = new int[]{-1, -1};
         
         for (int row = 0; row < size; row++) {
             for (int col = 0; col < size; col++) {
-                Tile tile = board.getTile(row, col);
-                if (tile != null && tile.getValue() > maxValue) {
-                    maxValue = tile.getValue();
+                int exponent = board.getExponent(row, col);
+                if (exponent > maxExponent) {
+                    maxExponent = exponent;
                     position[0] = row;
                     position[1] = col;
                 }
@@ -195,10 +224,8 @@ public class Suggestion {
         if (direction == Board.UP || direction == Board.DOWN) {
             for (int col = 0; col < size; col++) {
                 for (int row = 0; row < size - 1; row++) {
-                    Tile current = board.getTile(row, col);
-                    Tile next = board.getTile(row + 1, col);
-                    if (current != null && next != null && 
-                        current.getValue() == next.getValue()) {
+                    int current = board.getExponent(row, col);
+                    if (current != 0 && current == board.getExponent(row + 1, col)) {
                         mergeCount++;
                     }
                 }
@@ -206,10 +233,8 @@ public class Suggestion {
         } else {
             for (int row = 0; row < size; row++) {
                 for (int col = 0; col < size - 1; col++) {
-                    Tile current = board.getTile(row, col);
-                    Tile next = board.getTile(row, col + 1);
-                    if (current != null && next != null && 
-                        current.getValue() == next.getValue()) {
+                    int current = board.getExponent(row, col);
+                    if (current != 0 && current == board.getExponent(row, col + 1)) {
                         mergeCount++;
                     }
                 }
@@ -0,0 +1,64 @@
+package game2048;
+
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+// Runs a game's suggestion searches on a small pool shared by all games. A game has at most
+// one search in flight: a newer request cancels the running search and queues behind it.
+// Each request searches the board snapshot current when it was made, and its result is only
+// delivered while it is the latest request and that snapshot is still the current one.
+public class SuggestionExecutor {
+    private static final int POOL_THREADS = 2;
+
+    private static final ExecutorService POOL = Executors.newFixedThreadPool(POOL_THREADS, new ThreadFactory() {
+        private int count;
+
+        @Override
+        public synchronized Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "suggestion-worker-" + (++count));
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    // Guarded by this
+    private long latestRequest;
+    private CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
+
+    // Searches the session's current snapshot; onResult runs on a pool thread, and only for a
+    // result that is still current when the search finishes
+    public synchronized void request(GameSession session, Consumer<String> onResult) {
+        long request = ++latestRequest;
+        BoardSnapshot snapshot = session.getSnapshot();
+        long version = snapshot.getVersion();
+        session.cancelSuggestion();
+
+        // Chained so the cancelled search has returned before the next one starts
+        tail = tail.thenRunAsync(() -> {
+            if (!isCurrent(request, session, version)) {
+                return;
+            }
+
+            String suggestion = session.getSuggestion(snapshot);
+            if (isCurrent(request, session, version)) {
+                onResult.accept(suggestion);
+            }
+        }, POOL).exceptionally(e -> {
+            // Keep the chain usable for the next request
+            e.printStackTrace();
+            return null;
+        });
+    }
+
+    // Drops the in-flight request's result and stops its search
+    public synchronized void cancel(GameSession session) {
+        latestRequest++;
+        if (session != null) {
+            session.cancelSuggestion();
+        }
+    }
+
+    private synchronized boolean isCurrent(long request, GameSession session, long version) {
+        return request == latestRequest && session.getBoardVersion() == version;
+    }
+}
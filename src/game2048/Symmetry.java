@@ -0,0 +1,132 @@
+package game2048;
+
+// The eight rotations and reflections of a square board. A transform is a 3-bit index:
+// bit 2 transposes the board, then bit 1 mirrors it top to bottom, then bit 0 mirrors it
+// left to right. Moves, merges and the search heuristics all commute with these, so
+// symmetric positions have the same expectimax value once directions are remapped.
+public final class Symmetry {
+    public static final int COUNT = 8;
+    public static final int IDENTITY = 0;
+
+    private static final int MIRROR_COLUMNS = 1;
+    private static final int MIRROR_ROWS = 2;
+    private static final int TRANSPOSE = 4;
+
+    // Matches Board's split of rows between its two words
+    private static final int ROWS_IN_LO = 3;
+
+    private Symmetry() {
+    }
+
+    // A board's smallest packed form over all eight transforms, and the transform producing it
+    public static class Canonical {
+        public final long lo;
+        public final long hi;
+        public final int transform;
+
+        Canonical(long lo, long hi, int transform) {
+            this.lo = lo;
+            this.hi = hi;
+            this.transform = transform;
+        }
+    }
+
+    // Symmetric boards get identical lo/hi words; ties keep the lowest transform index
+    public static Canonical canonicalize(Board board) {
+        int size = board.getSize();
+        int[] rows = new int[size];
+        int[] columns = new int[size];
+        for (int i = 0; i < size; i++) {
+            rows[i] = board.rowLine(i);
+            columns[i] = board.columnLine(i);
+        }
+
+        long bestLo = board.packedLo();
+        long bestHi = board.packedHi();
+        int best = IDENTITY;
+        boolean wide = board.getHighestExponent() > MoveTable.CELL_MASK;
+
+        for (int transform = 1; transform < COUNT; transform++) {
+            int[] lines = (transform & TRANSPOSE) != 0 ? columns : rows;
+            int upper = wide ? packUpper(lines, size, transform) : 0;
+            long hi = Board.packHi(pack(lines, size, transform, ROWS_IN_LO, size), upper);
+            int order = Long.compareUnsigned(hi, bestHi);
+            if (order > 0) {
+                continue;
+            }
+
+            long lo = Board.packLo(pack(lines, size, transform, 0, Math.min(size, ROWS_IN_LO)), upper);
+            if (order < 0 || Long.compareUnsigned(lo, bestLo) < 0) {
+                bestLo = lo;
+                bestHi = hi;
+                best = transform;
+            }
+        }
+
+        return new Canonical(bestLo, bestHi, best);
+    }
+
+    // A copy of the board under the transform, keeping its score, won flag and spawn source
+    public static Board apply(Board board, int transform) {
+        int size = board.getSize();
+        int[] lines = new int[size];
+        for (int i = 0; i < size; i++) {
+            lines[i] = (transform & TRANSPOSE) != 0 ? board.columnLine(i) : board.rowLine(i);
+        }
+
+        int upper = packUpper(lines, size, transform);
+        long lo = Board.packLo(pack(lines, size, transform, 0, Math.min(size, ROWS_IN_LO)), upper);
+        long hi = Board.packHi(pack(lines, size, transform, ROWS_IN_LO, size), upper);
+        return Board.fromPacked(size, lo, hi, board.getScore(), board.hasWon(), board.getSpawnSource());
+    }
+
+    // The direction on the transformed board that matches `direction` on the original
+    public static int toTransformed(int direction, int transform) {
+        if ((transform & TRANSPOSE) != 0) {
+            direction ^= 2;
+        }
+        return mirror(direction, transform);
+    }
+
+    // The direction on the original board that matches `direction` on the transformed one
+    public static int fromTransformed(int direction, int transform) {
+        direction = mirror(direction, transform);
+        return (transform & TRANSPOSE) != 0 ? direction ^ 2 : direction;
+    }
+
+    // UP/DOWN and LEFT/RIGHT differ only in bit 0
+    private static int mirror(int direction, int transform) {
+        boolean vertical = direction == Board.UP || direction == Board.DOWN;
+        if ((transform & (vertical ? MIRROR_ROWS : MIRROR_COLUMNS)) != 0) {
+            direction ^= 1;
+        }
+        return direction;
+    }
+
+    // Packs the low four exponent bits of rows [from, to) of the transformed board into one word
+    private static long pack(int[] lines, int size, int transform, int from, int to) {
+        long word = 0;
+        for (int row = from; row < to; row++) {
+            int line = transformedRow(lines, size, transform, row) & MoveTable.LINE_MASK;
+            word |= (long) line << ((row - from) * MoveTable.LINE_BITS);
+        }
+        return word;
+    }
+
+    // The fifth exponent bits of the transformed board, laid out like Board's upper bits
+    private static int packUpper(int[] lines, int size, int transform) {
+        int upper = 0;
+        for (int row = 0; row < size; row++) {
+            upper |= (transformedRow(lines, size, transform, row) >>> MoveTable.LINE_BITS) << (row * Board.MAX_SIZE);
+        }
+        return upper;
+    }
+
+    private static int transformedRow(int[] lines, int size, int transform, int row) {
+        int line = lines[(transform & MIRROR_ROWS) != 0 ? size - 1 - row : row];
+        if ((transform & MIRROR_COLUMNS) != 0) {
+            line = MoveTable.reverse(line, size);
+        }
+        return line;
+    }
+}
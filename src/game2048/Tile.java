@@ -1,46 +1,48 @@
 package game2048;
 
-public class Tile {
-    private int value;
-    private boolean merged;
-    
-    public Tile(int value) {
-        this.value = value;
-        this.merged = false;
-    }
-    
-    public int getValue() {
-        return value;
+// Immutable tile. There is one shared instance per value, so getTile never allocates and
+// tiles can be compared with ==.
+public final class Tile {
+    private static final int MAX_EXPONENT = 30;
+    private static final Tile[] INSTANCES = new Tile[MAX_EXPONENT + 1];
+
+    static {
+        for (int exponent = 1; exponent <= MAX_EXPONENT; exponent++) {
+            INSTANCES[exponent] = new Tile(exponent);
+        }
     }
+
+    // 1 = 2, 2 = 4, ... the value is only rebuilt for display
+    private final byte exponent;
     
-    public void setValue(int value) {
-        this.value = value;
+    private Tile(int exponent) {
+        this.exponent = (byte) exponent;
     }
     
-    public void doubleValue() {
-        this.value *= 2;
+    public static Tile valueOf(int value) {
+        if (value < 2 || Integer.bitCount(value) != 1) {
+            throw new IllegalArgumentException("Tile value must be a power of two of at least 2: " + value);
+        }
+        return INSTANCES[Integer.numberOfTrailingZeros(value)];
     }
     
-    public boolean isMerged() {
-        return merged;
+    public static Tile fromExponent(int exponent) {
+        if (exponent < 1 || exponent > MAX_EXPONENT) {
+            throw new IllegalArgumentException("Tile exponent must be between 1 and " + MAX_EXPONENT + ": " + exponent);
+        }
+        return INSTANCES[exponent];
     }
     
-    public void setMerged(boolean merged) {
-        this.merged = merged;
+    public int getValue() {
+        return 1 << exponent;
     }
     
-    public void resetMerged() {
-        this.merged = false;
+    public int getExponent() {
+        return exponent;
     }
     
     @Override
     public String toString() {
-        return String.valueOf(value);
-    }
-    
-    public Tile copy() {
-        Tile copy = new Tile(this.value);
-        copy.merged = this.merged;
-        return copy;
+        return String.valueOf(getValue());
     }
-}
\ No newline at end of file
+}
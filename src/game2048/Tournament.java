@@ -0,0 +1,286 @@
+package game2048;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Plays the same seeded games with several advisor configurations on all cores and
+// compares them with 95% confidence intervals. Every finished game is appended to a
+// results file, and games already in the file are skipped, so an interrupted tournament
+// resumes where it stopped. Games share nothing mutable: each builds its own board,
+// spawn source and advisor.
+//
+// Usage: java game2048.Tournament <results file> <games per config> <config>... [--seed=N] [--threads=N]
+// A config is "suggestion", "expectimax:<depth>", or "timed[:<ms>]" / "timed-sampled[:<ms>]"
+// for the game's time-budgeted search without / with chance sampling (default 150 ms). Any
+// of these can end in ":<weights file>" to play with weights from WeightTuner instead of the
+// loaded ones. "rollout[:<playouts>]" and "greedy-rollout[:<playouts>]" play Monte Carlo
+// playouts per legal move.
+public class Tournament {
+    private static final double Z_95 = 1.96;
+    private static final long SUMMARY_INTERVAL_SECONDS = 10;
+
+    private final Path resultsFile;
+    private final Map<String, Summary> summaries = new LinkedHashMap<>();
+    private final Set<String> finished = new HashSet<>();
+
+    // Running totals of one configuration
+    public static class Summary {
+        public int games;
+        public long moves;
+        public int wins;
+        public double scoreSum;
+        public double scoreSquares;
+        public int[] highestTileCounts = new int[MoveTable.MAX_EXPONENT + 1];
+
+        void add(AutoPlay.GameResult result) {
+            games++;
+            moves += result.moves;
+            scoreSum += result.score;
+            scoreSquares += (double) result.score * result.score;
+            highestTileCounts[result.highestExponent]++;
+            if (result.won) {
+                wins++;
+            }
+        }
+
+        public double getMeanScore() {
+            return games == 0 ? 0 : scoreSum / games;
+        }
+
+        // Half-width of the 95% confidence interval of the mean score
+        public double getScoreMargin() {
+            if (games < 2) {
+                return Double.NaN;
+            }
+            double mean = getMeanScore();
+            double variance = Math.max(0, (scoreSquares - games * mean * mean) / (games - 1));
+            return Z_95 * Math.sqrt(variance / games);
+        }
+
+        public double getWinRate() {
+            return games == 0 ? 0 : (double) wins / games;
+        }
+
+        // Wilson score interval of the win rate, {low, high}
+        public double[] getWinRateInterval() {
+            if (games == 0) {
+                return new double[]{0, 1};
+            }
+            double p = getWinRate();
+            double z2 = Z_95 * Z_95;
+            double center = (p + z2 / (2 * games)) / (1 + z2 / games);
+            double margin = Z_95 * Math.sqrt(p * (1 - p) / games + z2 / (4.0 * games * games)) / (1 + z2 / games);
+            return new double[]{Math.max(0, center - margin), Math.min(1, center + margin)};
+        }
+
+        // Highest tile reached by at least half of the games
+        public int getMedianHighestTile() {
+            int seen = 0;
+            for (int exponent = 0; exponent < highestTileCounts.length; exponent++) {
+                seen += highestTileCounts[exponent];
+                if (seen * 2 >= games) {
+                    return exponent == 0 ? 0 : 1 << exponent;
+                }
+            }
+            return 0;
+        }
+    }
+
+    public Tournament(Path resultsFile) {
+        this.resultsFile = resultsFile;
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> configs = new ArrayList<>();
+        long seed = 1;
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].startsWith("--seed=")) {
+                seed = Long.parseLong(args[i].substring("--seed=".length()));
+            } else if (args[i].startsWith("--threads=")) {
+                threads = Integer.parseInt(args[i].substring("--threads=".length()));
+            } else {
+                configs.add(args[i]);
+            }
+        }
+        if (args.length < 3 || configs.isEmpty()) {
+            System.out.println("Usage: java game2048.Tournament <results file> <games per config> <config>... [--seed=N] [--threads=N]");
+            return;
+        }
+
+        Tournament tournament = new Tournament(Paths.get(args[0]));
+        tournament.run(configs, Integer.parseInt(args[1]), seed, threads);
+    }
+
+    // "suggestion[:<weights file>]", "expectimax:<depth>[:<weights file>]",
+    // "timed[:<ms>[:<weights file>]]", "timed-sampled[:<ms>[:<weights file>]]",
+    // "rollout[:<playouts>]" or "greedy-rollout[:<playouts>]"
+    public static MoveAdvisor createAdvisor(String config) {
+        String[] parts = config.split(":", 3);
+        String name = parts[0];
+        if (name.equals("rollout") || name.equals("greedy-rollout")) {
+            int playouts = parts.length > 1 ? Integer.parseInt(parts[1]) : RolloutAdvisor.DEFAULT_PLAYOUTS;
+            return MoveAdvisor.rollout(playouts, name.equals("greedy-rollout"), 1);
+        }
+
+        boolean timed = name.equals("timed") || name.equals("timed-sampled");
+        boolean hasNumber = (name.equals("expectimax") || timed) && parts.length > 1;
+        int weightsPart = hasNumber ? 2 : 1;
+
+        HeuristicWeights weights = HeuristicWeights.loaded();
+        if (parts.length > weightsPart) {
+            String weightsFile = hasNumber ? parts[2] : config.substring(name.length() + 1);
+            try {
+                weights = HeuristicWeights.load(Paths.get(weightsFile));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        if (timed) {
+            long budget = hasNumber ? Long.parseLong(parts[1]) : GameSession.SUGGESTION_TIME_BUDGET_MS;
+            return MoveAdvisor.timed(budget, name.equals("timed-sampled"), weights);
+        }
+        int depth = hasNumber ? Integer.parseInt(parts[1]) : ImprovedExpectimax.SEARCH_DEPTH;
+        return MoveAdvisor.byName(name, depth, weights);
+    }
+
+    public void run(List<String> configs, int gamesPerConfig, long seed, int threads) throws IOException, InterruptedException {
+        for (String config : configs) {
+            createAdvisor(config);
+            summaries.put(config, new Summary());
+        }
+        int resumed = loadResults(seed, gamesPerConfig);
+
+        // Game-major order, so every configuration makes progress at the same pace
+        List<String> pendingConfigs = new ArrayList<>();
+        List<Long> pendingSeeds = new ArrayList<>();
+        for (int game = 0; game < gamesPerConfig; game++) {
+            for (String config : configs) {
+                if (!finished.contains(resultKey(config, seed + game))) {
+                    pendingConfigs.add(config);
+                    pendingSeeds.add(seed + game);
+                }
+            }
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        ScheduledExecutorService printer = Executors.newSingleThreadScheduledExecutor();
+        long start = System.nanoTime();
+
+        try (BufferedWriter writer = Files.newBufferedWriter(resultsFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            System.out.printf("%d games to play, %d resumed from %s, %d threads%n", pendingConfigs.size(), resumed, resultsFile, threads);
+
+            for (int i = 0; i < pendingConfigs.size(); i++) {
+                String config = pendingConfigs.get(i);
+                long gameSeed = pendingSeeds.get(i);
+                executor.execute(() -> {
+                    AutoPlay.GameResult result = AutoPlay.playGame(createAdvisor(config), gameSeed);
+                    record(writer, config, gameSeed, result);
+                });
+            }
+
+            printer.scheduleAtFixedRate(this::printSummary, SUMMARY_INTERVAL_SECONDS, SUMMARY_INTERVAL_SECONDS, TimeUnit.SECONDS);
+
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+        } finally {
+            printer.shutdownNow();
+            executor.shutdownNow();
+        }
+
+        System.out.printf("Finished %d games in %.1f s%n", pendingConfigs.size(), (System.nanoTime() - start) / 1e9);
+        printSummary();
+    }
+
+    // Reads earlier results for the configurations being played and the seeds of this run,
+    // [seed, seed + games); other lines are kept but ignored
+    private int loadResults(long seed, int games) throws IOException {
+        if (!Files.exists(resultsFile)) {
+            return 0;
+        }
+
+        // A run stopped mid-write leaves a half line at the end. It is cut off here, so the
+        // next result does not complete it into something that reads as a real game.
+        byte[] bytes = Files.readAllBytes(resultsFile);
+        int length = bytes.length;
+        while (length > 0 && bytes[length - 1] != '\n') {
+            length--;
+        }
+        if (length < bytes.length) {
+            try (FileChannel channel = FileChannel.open(resultsFile, StandardOpenOption.WRITE)) {
+                channel.truncate(length);
+            }
+            System.out.println("Dropped a half-written last line from " + resultsFile);
+        }
+
+        // Also reads files whose lines end in "\r\n", such as older ones written on Windows
+        String content = new String(bytes, 0, length, StandardCharsets.UTF_8);
+        int count = 0;
+        for (String line : content.split("\\R")) {
+            String[] fields = line.trim().split("\t");
+            AutoPlay.GameResult result = parseResult(fields);
+            if (result == null) {
+                continue;
+            }
+
+            long gameSeed = Long.parseLong(fields[1]);
+            if (gameSeed - seed >= 0 && gameSeed - seed < games && finished.add(resultKey(fields[0], gameSeed))) {
+                summaries.get(fields[0]).add(result);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Null for lines of other configurations and for malformed ones
+    private AutoPlay.GameResult parseResult(String[] fields) {
+        if (fields.length != 6 || !summaries.containsKey(fields[0])
+                || !(fields[5].equals("true") || fields[5].equals("false"))) {
+            return null;
+        }
+        try {
+            Long.parseLong(fields[1]);
+            return new AutoPlay.GameResult(Integer.parseInt(fields[2]), Integer.parseInt(fields[3]),
+                Integer.parseInt(fields[4]), fields[5].equals("true"));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // One line per game: config, seed, score, moves, highest exponent, won. Lines always end
+    // in '\n', so a results file reads the same on every platform.
+    private synchronized void record(BufferedWriter writer, String config, long gameSeed, AutoPlay.GameResult result) {
+        try {
+            writer.write(config + "\t" + gameSeed + "\t" + result.score + "\t" + result.moves + "\t"
+                + result.highestExponent + "\t" + result.won + "\n");
+            writer.flush();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        finished.add(resultKey(config, gameSeed));
+        summaries.get(config).add(result);
+    }
+
+    public synchronized void printSummary() {
+        System.out.printf("%-16s %6s %22s %22s %10s %9s%n", "config", "games", "mean score (95% CI)", "win rate (95% CI)", "median max", "moves");
+        for (Map.Entry<String, Summary> entry : summaries.entrySet()) {
+            Summary summary = entry.getValue();
+            double[] winRate = summary.getWinRateInterval();
+            System.out.printf("%-16s %6d %10.0f +- %-8.0f %5.1f%% [%4.1f-%5.1f%%] %10d %9d%n",
+                entry.getKey(), summary.games, summary.getMeanScore(), summary.getScoreMargin(),
+                summary.getWinRate() * 100, winRate[0] * 100, winRate[1] * 100,
+                summary.getMedianHighestTile(), summary.moves);
+        }
+    }
+
+    private static String resultKey(String config, long gameSeed) {
+        return config + "\t" + gameSeed;
+    }
+}
@@ -0,0 +1,174 @@
+package game2048;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+// Fixed-size cache of expectimax values keyed by the packed board words, so positions
+// reached through different move orders are searched once. It is shared by all threads of
+// a parallel search without locks: every entry is three longs in one flat array,
+//
+//   [key ^ value ^ meta, value, meta]
+//
+// and a reader only trusts an entry whose words XOR back to the key it is looking for.
+// An entry torn by two racing writers fails that check and reads as a miss.
+//
+// A symmetric table keys every position by its canonical form (see Symmetry), so the eight
+// rotations and reflections of a board share one entry. Keys cost more to compute, and
+// values met through a different symmetry can differ in the last bits from a fresh search.
+//
+// Replacement: a slot is overwritten when it is empty, holds the same position, was written
+// by an earlier search, or the new value was searched at least as deep as the stored one.
+public class TranspositionTable {
+    public static final int BYTES_PER_ENTRY = 3 * Long.BYTES;
+
+    private static final int LONGS_PER_ENTRY = 3;
+    private static final int TAG_MASK = 0xFF;
+    private static final int GENERATION_SHIFT = 8;
+
+    private final int sizeBits;
+    private final boolean symmetric;
+    private final long[] entries;
+    private volatile int generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder collisions = new LongAdder();
+
+    public TranspositionTable(int sizeBits) {
+        this(sizeBits, false);
+    }
+
+    public TranspositionTable(int sizeBits, boolean symmetric) {
+        if (sizeBits < 1 || sizeBits > 26) {
+            throw new IllegalArgumentException("Table size must be between 2^1 and 2^26 entries: 2^" + sizeBits);
+        }
+        this.sizeBits = sizeBits;
+        this.symmetric = symmetric;
+        this.entries = new long[LONGS_PER_ENTRY << sizeBits];
+    }
+
+    // Largest table that fits in the given number of bytes
+    public static TranspositionTable withMemoryBudget(long bytes) {
+        return withMemoryBudget(bytes, false);
+    }
+
+    public static TranspositionTable withMemoryBudget(long bytes, boolean symmetric) {
+        int sizeBits = 63 - Long.numberOfLeadingZeros(Math.max(2, bytes / BYTES_PER_ENTRY));
+        return new TranspositionTable(Math.min(26, sizeBits), symmetric);
+    }
+
+    public boolean isSymmetric() {
+        return symmetric;
+    }
+
+    // Marks the start of a new suggestion; older entries become preferred victims
+    public void newSearch() {
+        generation = (generation + 1) & TAG_MASK;
+    }
+
+    // Cached value for this position at exactly this depth and node type, or NaN on a miss.
+    // Requiring the same depth keeps results identical to a search without the table.
+    public double probe(Board board, int depth, boolean maxNode) {
+        long key = key(board);
+        int index = index(key);
+
+        long check = entries[index];
+        long value = entries[index + 1];
+        long meta = entries[index + 2];
+
+        if ((check ^ value ^ meta) == key) {
+            if ((meta & TAG_MASK) == tag(depth, maxNode)) {
+                hits.increment();
+                return Double.longBitsToDouble(value);
+            }
+        } else if (meta != 0) {
+            collisions.increment();
+        }
+
+        misses.increment();
+        return Double.NaN;
+    }
+
+    public void store(Board board, int depth, boolean maxNode, double value) {
+        long key = key(board);
+        int index = index(key);
+
+        long storedMeta = entries[index + 2];
+        int storedTag = (int) (storedMeta & TAG_MASK);
+        boolean sameKey = (entries[index] ^ entries[index + 1] ^ storedMeta) == key;
+
+        boolean replace = storedTag == 0
+                || (storedMeta >>> GENERATION_SHIFT) != generation
+                || sameKey
+                || depth >= storedTag >> 1;
+
+        if (replace) {
+            long valueBits = Double.doubleToRawLongBits(value);
+            long meta = ((long) generation << GENERATION_SHIFT) | tag(depth, maxNode);
+            entries[index + 1] = valueBits;
+            entries[index + 2] = meta;
+            entries[index] = key ^ valueBits ^ meta;
+        }
+    }
+
+    // Not safe while a search is using the table
+    public void clear() {
+        Arrays.fill(entries, 0);
+        hits.reset();
+        misses.reset();
+        collisions.reset();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public double getHitRate() {
+        long h = hits.sum();
+        long probes = h + misses.sum();
+        return probes == 0 ? 0 : (double) h / probes;
+    }
+
+    // Share of probes that found their slot taken by a different position
+    public double getCollisionRate() {
+        long probes = hits.sum() + misses.sum();
+        return probes == 0 ? 0 : (double) collisions.sum() / probes;
+    }
+
+    public int getCapacity() {
+        return 1 << sizeBits;
+    }
+
+    public long getMemoryBytes() {
+        return (long) entries.length * Long.BYTES;
+    }
+
+    private static int tag(int depth, boolean maxNode) {
+        return depth * 2 + (maxNode ? 1 : 0);
+    }
+
+    private long key(Board board) {
+        if (symmetric) {
+            Symmetry.Canonical canonical = Symmetry.canonicalize(board);
+            return key(canonical.lo, canonical.hi);
+        }
+        return key(board.packedLo(), board.packedHi());
+    }
+
+    // 64-bit mix of both board words; two positions sharing a key are vanishingly rare
+    private static long key(long lo, long hi) {
+        long hash = lo * 0x9E3779B97F4A7C15L ^ hi * 0xC2B2AE3D27D4EB4FL;
+        hash ^= hash >>> 31;
+        hash *= 0xBF58476D1CE4E5B9L;
+        hash ^= hash >>> 29;
+        return hash;
+    }
+
+    private int index(long key) {
+        return (int) (key >>> (64 - sizeBits)) * LONGS_PER_ENTRY;
+    }
+}
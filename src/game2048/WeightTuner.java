@@ -0,0 +1,282 @@
+package game2048;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Tunes one advisor's heuristic weights by parallel hill-climbing on seeded self-play. Each
+// iteration perturbs the current weights into several candidates and plays every candidate
+// and the current weights on the same fresh set of seeds, so they are compared on identical
+// spawns. The best of several noisy means is biased upwards, so the best candidate is then
+// re-played against the current weights on a second fresh set of seeds and replaces them
+// only if it wins there by more than one standard error of the paired score differences.
+// The step size grows after an improvement and shrinks otherwise.
+//
+// After every iteration the weights file and a checkpoint next to it are rewritten, so an
+// interrupted run resumes where it stopped. Point -Dgame2048.weights at the weights file
+// (or name it weights.properties) to play with the result.
+//
+// Usage: java game2048.WeightTuner <weights file> [config] [iterations] [candidates] [games] [--seed=N] [--threads=N]
+// The config is "expectimax[:<depth>]" (default expectimax:2, depth 3 when omitted),
+// "suggestion", or "timed[:<ms>]" / "timed-sampled[:<ms>]"; only that advisor's weights are
+// tuned. Fixed-depth search plays the same on any machine, which keeps the paired
+// comparison fair. The timed configs match the game's suggestions but search as deep as
+// the machine's load allows and take minutes per game, so confirm tuned weights against
+// the game's search with Tournament rather than tuning on it. The checkpoint records the
+// config, and resuming with a different one is refused.
+public class WeightTuner {
+    private static final double INITIAL_STEP = 0.2;
+    private static final double MIN_STEP = 0.02;
+    private static final double MAX_STEP = 1.0;
+    private static final double STEP_GROWTH = 1.3;
+    private static final double STEP_SHRINK = 0.85;
+    // Standard errors the confirmation games must be won by
+    private static final double CONFIRM_MARGIN = 1.0;
+
+    private final Path weightsFile;
+    private final Path checkpointFile;
+    private final String config;
+    private final String advisorName;
+    private final int depth;
+    private final long budgetMillis;
+    private final int first;
+    private final int count;
+
+    // Progress, saved in the checkpoint
+    private HeuristicWeights weights;
+    private int iteration;
+    private double step = INITIAL_STEP;
+    private double score = Double.NaN;
+
+    public WeightTuner(Path weightsFile, String config) {
+        this.weightsFile = weightsFile;
+        this.checkpointFile = weightsFile.resolveSibling(weightsFile.getFileName() + ".checkpoint");
+
+        this.config = config;
+        String[] parts = config.split(":");
+        advisorName = parts[0];
+        depth = parts.length > 1 && advisorName.equals("expectimax") ? Integer.parseInt(parts[1]) : ImprovedExpectimax.SEARCH_DEPTH;
+        budgetMillis = parts.length > 1 && advisorName.startsWith("timed")
+            ? Long.parseLong(parts[1]) : GameSession.SUGGESTION_TIME_BUDGET_MS;
+        if (advisorName.equals("expectimax") || advisorName.equals("timed") || advisorName.equals("timed-sampled")) {
+            first = HeuristicWeights.EXPECTIMAX_FIRST;
+            count = HeuristicWeights.EXPECTIMAX_COUNT;
+        } else if (advisorName.equals("suggestion")) {
+            first = HeuristicWeights.SUGGESTION_FIRST;
+            count = HeuristicWeights.SUGGESTION_COUNT;
+        } else {
+            throw new IllegalArgumentException("Unknown advisor: " + advisorName);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> positional = new ArrayList<>();
+        long seed = 1;
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        for (String arg : args) {
+            if (arg.startsWith("--seed=")) {
+                seed = Long.parseLong(arg.substring("--seed=".length()));
+            } else if (arg.startsWith("--threads=")) {
+                threads = Integer.parseInt(arg.substring("--threads=".length()));
+            } else {
+                positional.add(arg);
+            }
+        }
+        if (positional.isEmpty()) {
+            System.out.println("Usage: java game2048.WeightTuner <weights file> [config] [iterations] [candidates] [games] [--seed=N] [--threads=N]");
+            return;
+        }
+
+        String config = positional.size() > 1 ? positional.get(1) : "expectimax:2";
+        int iterations = positional.size() > 2 ? Integer.parseInt(positional.get(2)) : 50;
+        int candidates = positional.size() > 3 ? Integer.parseInt(positional.get(3)) : 8;
+        int games = positional.size() > 4 ? Integer.parseInt(positional.get(4)) : 50;
+
+        WeightTuner tuner = new WeightTuner(Paths.get(positional.get(0)), config);
+        tuner.run(iterations, candidates, games, seed, threads);
+    }
+
+    public void run(int iterations, int candidates, int games, long seed, int threads) throws IOException, InterruptedException {
+        loadCheckpoint();
+        System.out.printf("Tuning %s from iteration %d, %d candidates x %d games, %d threads%n",
+            config, iteration, candidates, games, threads);
+        System.out.println(weights);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            while (iteration < iterations) {
+                long start = System.nanoTime();
+                Random random = new Random(seed * 31 + iteration);
+
+                // Entry 0 is the current weights, re-measured on this iteration's seeds
+                List<HeuristicWeights> tried = new ArrayList<>();
+                tried.add(weights);
+                for (int i = 0; i < candidates; i++) {
+                    tried.add(perturb(weights, random));
+                }
+
+                // Every iteration uses two blocks of seeds: selection, then confirmation
+                long firstSeed = seed + 2L * iteration * games;
+                long[] moves = new long[1];
+                int[][] scores = evaluate(executor, tried, games, firstSeed, moves);
+
+                int best = 0;
+                for (int i = 1; i < scores.length; i++) {
+                    if (mean(scores[i]) > mean(scores[best])) {
+                        best = i;
+                    }
+                }
+
+                boolean accepted = false;
+                double current = mean(scores[0]);
+                double confirmed = Double.NaN;
+                if (best > 0) {
+                    int[][] confirmation = evaluate(executor, List.of(weights, tried.get(best)), games, firstSeed + games, moves);
+                    double[] differences = new double[games];
+                    for (int game = 0; game < games; game++) {
+                        differences[game] = confirmation[1][game] - confirmation[0][game];
+                    }
+                    current = mean(confirmation[0]);
+                    confirmed = mean(confirmation[1]);
+                    accepted = mean(differences) > CONFIRM_MARGIN * standardError(differences);
+                }
+
+                if (accepted) {
+                    weights = tried.get(best);
+                    score = confirmed;
+                    step = Math.min(MAX_STEP, step * STEP_GROWTH);
+                } else {
+                    score = current;
+                    step = Math.max(MIN_STEP, step * STEP_SHRINK);
+                }
+                iteration++;
+                saveCheckpoint();
+
+                double seconds = (System.nanoTime() - start) / 1e9;
+                String outcome = best == 0 ? "no candidate beat current"
+                    : String.format("best candidate %.0f, confirmed %.0f vs %.0f%s",
+                        mean(scores[best]), confirmed, current, accepted ? " (accepted)" : "");
+                System.out.printf("iteration %d: current %.0f, %s, step %.3f, %.0f moves/s%n",
+                    iteration, mean(scores[0]), outcome, step, moves[0] / seconds);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        System.out.println("Tuned weights, mean score " + Math.round(score) + ":");
+        System.out.println(weights);
+    }
+
+    // Score of each weight set in each of the same seeded games; moves[0] receives the total moves
+    private int[][] evaluate(ExecutorService executor, List<HeuristicWeights> tried, int games, long firstSeed, long[] moves)
+            throws InterruptedException {
+        List<List<Future<AutoPlay.GameResult>>> futures = new ArrayList<>();
+        for (HeuristicWeights candidate : tried) {
+            List<Future<AutoPlay.GameResult>> results = new ArrayList<>();
+            for (int game = 0; game < games; game++) {
+                long gameSeed = firstSeed + game;
+                results.add(executor.submit(() ->
+                    AutoPlay.playGame(createAdvisor(candidate), gameSeed)));
+            }
+            futures.add(results);
+        }
+
+        int[][] scores = new int[tried.size()][games];
+        for (int i = 0; i < futures.size(); i++) {
+            for (int game = 0; game < games; game++) {
+                try {
+                    AutoPlay.GameResult result = futures.get(i).get(game).get();
+                    scores[i][game] = result.score;
+                    moves[0] += result.moves;
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+        }
+        return scores;
+    }
+
+    private static double mean(int[] values) {
+        long total = 0;
+        for (int value : values) {
+            total += value;
+        }
+        return (double) total / values.length;
+    }
+
+    private static double mean(double[] values) {
+        double total = 0;
+        for (double value : values) {
+            total += value;
+        }
+        return total / values.length;
+    }
+
+    // Of the mean; zero for a single value
+    private static double standardError(double[] values) {
+        if (values.length < 2) {
+            return 0;
+        }
+        double mean = mean(values);
+        double squares = 0;
+        for (double value : values) {
+            squares += (value - mean) * (value - mean);
+        }
+        return Math.sqrt(squares / (values.length - 1) / values.length);
+    }
+
+    private MoveAdvisor createAdvisor(HeuristicWeights candidate) {
+        if (advisorName.startsWith("timed")) {
+            return MoveAdvisor.timed(budgetMillis, advisorName.equals("timed-sampled"), candidate);
+        }
+        return MoveAdvisor.byName(advisorName, depth, candidate);
+    }
+
+    // Multiplies each of the advisor's weights by a log-normal factor, so signs are kept
+    private HeuristicWeights perturb(HeuristicWeights current, Random random) {
+        double[] values = current.toArray();
+        for (int i = first; i < first + count; i++) {
+            values[i] *= Math.exp(step * random.nextGaussian());
+        }
+        return new HeuristicWeights(values);
+    }
+
+    private void loadCheckpoint() throws IOException {
+        weights = Files.exists(weightsFile) ? HeuristicWeights.load(weightsFile) : HeuristicWeights.defaults();
+        if (!Files.exists(checkpointFile)) {
+            return;
+        }
+
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(checkpointFile, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        String tunedFor = properties.getProperty("config", config);
+        if (!tunedFor.equals(config)) {
+            throw new IllegalStateException(checkpointFile + " was tuned for " + tunedFor + ", not " + config);
+        }
+        iteration = Integer.parseInt(properties.getProperty("iteration", "0"));
+        step = Double.parseDouble(properties.getProperty("step", String.valueOf(INITIAL_STEP)));
+        score = Double.parseDouble(properties.getProperty("score", "NaN"));
+    }
+
+    // The weights file goes first: a checkpoint never points past the weights on disk
+    private void saveCheckpoint() throws IOException {
+        weights.save(weightsFile, "Tuned for " + config + ", iteration " + iteration + ", mean score " + Math.round(score));
+
+        Properties properties = new Properties();
+        properties.setProperty("config", config);
+        properties.setProperty("iteration", String.valueOf(iteration));
+        properties.setProperty("step", String.valueOf(step));
+        properties.setProperty("score", String.valueOf(score));
+
+        Path temp = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            properties.store(writer, "WeightTuner progress for " + weightsFile.getFileName());
+        }
+        Files.move(temp, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}